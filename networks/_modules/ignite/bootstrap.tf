@@ -97,6 +97,7 @@ data "null_data_source" "meta" {
     nodeUrl         = format("http://%s:%d", var.geth_networking[count.index].ip.public, var.geth_networking[count.index].port.http.external)
     tmThirdpartyUrl = format("http://%s:%d", var.tm_networking[count.index].ip.public, var.tm_networking[count.index].port.thirdparty.external)
     graphqlUrl      = var.geth_networking[count.index].graphql ? format("http://%s:%d/graphql", var.geth_networking[count.index].ip.public, var.geth_networking[count.index].port.http.external) : ""
+    wsUrl           = var.geth_networking[count.index].port.ws == null ? "" : format("ws://%s:%d", var.geth_networking[count.index].ip.public, var.geth_networking[count.index].port.ws.external)
   }
 }
 
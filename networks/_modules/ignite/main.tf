@@ -90,6 +90,12 @@ quorum:
 %{endif~}
 %{if !local.vnodes[i].mpsEnabled~}
       url: ${data.null_data_source.meta[i].inputs.nodeUrl}
+%{endif~}
+%{if data.null_data_source.meta[i].inputs.wsUrl != "" && local.vnodes[i].mpsEnabled~}
+      ws-url: ${data.null_data_source.meta[i].inputs.wsUrl}/?PSI=${b.name}
+%{endif~}
+%{if data.null_data_source.meta[i].inputs.wsUrl != "" && !local.vnodes[i].mpsEnabled~}
+      ws-url: ${data.null_data_source.meta[i].inputs.wsUrl}
 %{endif~}
       enode-url: ${local.enode_urls[i]}
 %{if lookup(var.qlight_clients, i, null) != null~}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.ext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.protocol.ObjectMapperFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-RPC batches of {@code eth_getTransactionReceipt}, as sent when waiting for many receipts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchRequestBenchmark {
+    @Param({"10", "100"})
+    public int size;
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    private BatchRequest request;
+    private String response;
+
+    @Setup
+    public void setup() {
+        BatchRequest.Collector collector = BatchRequest.Collector.create();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            String hash = String.format("0x%064x", i);
+            collector.add("eth_getTransactionReceipt", Arrays.asList(hash));
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"result\":{\"transactionHash\":\"").append(hash)
+                .append("\",\"blockNumber\":\"0x10\",\"status\":\"0x1\",\"gasUsed\":\"0x5208\",\"logs\":[],")
+                .append("\"contractAddress\":\"0x1932c48b2bf8102ba33b4a6b545c32236e342f34\"}}");
+        }
+        request = new BatchRequest(null, collector.toList());
+        response = json.append(']').toString();
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Benchmark
+    public BatchResponse deserialize() throws IOException {
+        return objectMapper.readValue(response, BatchResponse.class);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ABI encoding of {@code eth_call} and transaction data, as in {@link ContractService} and {@link ContractCodeReaderService}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FunctionEncoderBenchmark {
+    private static final List<TypeReference<?>> UINT256_OUTPUT = Collections.singletonList(new TypeReference<Uint256>() {
+    });
+
+    private final Function get = new Function("get", Collections.emptyList(), UINT256_OUTPUT);
+    private final Function set = new Function("set", Collections.singletonList(new Uint256(BigInteger.valueOf(42))), Collections.emptyList());
+    private final Function dynamic = new Function("setLastCodeSize",
+        Arrays.<Type>asList(new Address("0x1932c48b2bf8102ba33b4a6b545c32236e342f34"), new Utf8String("a string longer than thirty two bytes to span words")),
+        UINT256_OUTPUT);
+
+    @Benchmark
+    public String encodeNoArguments() {
+        return FunctionEncoder.encode(get);
+    }
+
+    @Benchmark
+    public String encodeUint256() {
+        return FunctionEncoder.encode(set);
+    }
+
+    @Benchmark
+    public String encodeDynamicArguments() {
+        return FunctionEncoder.encode(dynamic);
+    }
+
+    // the function is created for every call in the services
+    @Benchmark
+    public String createAndEncode() {
+        return FunctionEncoder.encode(new Function("get", Collections.emptyList(), UINT256_OUTPUT));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.rlp.RlpDecoder;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing raw private transactions, {@link #signMessage()} is the baseline without marking them private
+ * and {@link #signAndReencode()} marks them private by decoding and encoding the signed transaction again
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RawContractServiceBenchmark {
+    private RawContractService rawContractService;
+    private Credentials credentials;
+    private RawTransaction rawTransaction;
+
+    @Setup
+    public void setup() {
+        rawContractService = new RawContractService();
+        credentials = Credentials.create("0x8f2a55949038a9610f50fb23b5883af3b4ecb3c3bb792cbcefbd1542c692be63");
+        // the data of a raw private transaction is the 64-byte hash of the payload in the privacy manager
+        String tmHash = "0x" + "ab".repeat(64);
+        rawTransaction = RawTransaction.createContractTransaction(BigInteger.valueOf(42), BigInteger.ZERO, RawContractService.DEFAULT_GAS_LIMIT, BigInteger.ZERO, tmHash);
+    }
+
+    @Benchmark
+    public String sign() {
+        return rawContractService.sign(rawTransaction, credentials);
+    }
+
+    @Benchmark
+    public byte[] signMessage() {
+        return TransactionEncoder.signMessage(rawTransaction, credentials);
+    }
+
+    @Benchmark
+    public byte[] signAndReencode() {
+        byte[] signedMessage = TransactionEncoder.signMessage(rawTransaction, credentials);
+        RlpList rlpList = (RlpList) RlpDecoder.decode(signedMessage).getValues().get(0);
+        RlpString v = (RlpString) rlpList.getValues().get(rlpList.getValues().size() - 3);
+        v.getBytes()[0] = v.getBytes()[0] == 28 ? (byte) 38 : (byte) 37;
+        return RlpEncoder.encode(rlpList);
+    }
+}
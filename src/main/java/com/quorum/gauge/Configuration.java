@@ -22,7 +22,11 @@ package com.quorum.gauge;
 
 import com.quorum.gauge.common.Context;
 import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.quorum.gauge.ext.NodeConcurrencyLimiter;
+import com.quorum.gauge.ext.RpcMetricsInterceptor;
+import com.quorum.gauge.services.RpcMetricsService;
 import com.quorum.gauge.services.SocksProxyEmbeddedServer;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.logging.HttpLoggingInterceptor;
@@ -108,7 +112,7 @@ public class Configuration {
     }
 
     @Bean
-    public OkHttpClient okHttpClient(Optional<SocksProxyEmbeddedServer> socksProxyEmbeddedServer) {
+    public OkHttpClient okHttpClient(Optional<SocksProxyEmbeddedServer> socksProxyEmbeddedServer, RpcMetricsService rpcMetricsService) {
         OkHttpClient.Builder builder = new OkHttpClient.Builder();
 
         configureTimeoutsAndSSL(builder);
@@ -136,6 +140,17 @@ public class Configuration {
                 .build();
             return chain.proceed(request);
         });
+        QuorumNetworkProperty.RpcProperty rpc = networkProperty.getRpc();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), rpc.getMaxRequestsPerHost()));
+        dispatcher.setMaxRequestsPerHost(rpc.getMaxRequestsPerHost());
+        builder.dispatcher(dispatcher);
+        if (rpc.getConcurrencyLimit().isEnabled()) {
+            builder.addInterceptor(new NodeConcurrencyLimiter(rpc.getConcurrencyLimit()));
+        }
+        if (rpc.isMetricsEnabled()) {
+            builder.addInterceptor(new RpcMetricsInterceptor(rpcMetricsService));
+        }
         Logger httpLogger = LoggerFactory.getLogger(Configuration.class.getPackageName() + ".HttpLogger");
         if (httpLogger.isDebugEnabled()) {
             HttpLoggingInterceptor logging = new HttpLoggingInterceptor(httpLogger::debug);
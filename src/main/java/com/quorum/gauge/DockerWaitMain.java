@@ -20,8 +20,12 @@
 package com.quorum.gauge;
 
 import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.quorum.gauge.services.ChainHeadTracker;
 import com.quorum.gauge.services.DockerInfrastructureService;
+import com.quorum.gauge.services.QuorumNodeConnectionFactory;
+import io.reactivex.Completable;
 import io.reactivex.Observable;
+import io.reactivex.Single;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,16 +36,19 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Profile;
+import org.web3j.protocol.Web3j;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This is to wait for all docker containers to be running and healthy.
@@ -55,6 +62,7 @@ public class DockerWaitMain implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(DockerWaitMain.class);
 
     private static final String PROP_FILE_TEMP = "DockerWaitMain-%s.properties";
+    private static final Duration CONTAINERS_TIMEOUT = Duration.ofMinutes(10);
 
     enum WaitType {infra, network}
 
@@ -97,6 +105,12 @@ public class DockerWaitMain implements CommandLineRunner {
     @Autowired
     private QuorumNetworkProperty quorumNetworkProperty;
 
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    @Autowired
+    private QuorumNodeConnectionFactory connectionFactory;
+
     @Override
     public void run(String... args) throws Exception {
         switch (waitType) {
@@ -124,69 +138,78 @@ public class DockerWaitMain implements CommandLineRunner {
 
     private void waitForNetwork() throws Exception {
         QuorumNetworkProperty.DockerInfrastructureProperty docker = quorumNetworkProperty.getDockerInfrastructure();
-        List<Observable<DockerInfrastructureService.BasicContainerState>> all = new ArrayList<>();
+        List<String> containerIds = new ArrayList<>();
         for (String node : docker.getNodes().keySet()) {
             QuorumNetworkProperty.DockerInfrastructureProperty.DockerContainerProperty prop = docker.getNodes().get(node);
-            all.add(dockerService.getState(prop.getQuorumContainerId()));
-            all.add(dockerService.getState(prop.getTesseraContainerId()));
+            containerIds.add(prop.getQuorumContainerId());
+            containerIds.add(prop.getTesseraContainerId());
             if (prop.getEthSignerContainerId().isPresent()) {
-                all.add(dockerService.getState(prop.getEthSignerContainerId().get()));
+                containerIds.add(prop.getEthSignerContainerId().get());
             }
         }
-        // check containers wait for 10 minutes for things to start
-        int attemptCount = 10;
-        int allUp = 1;
-        for (int i = 0; i < attemptCount; i++) {
-            AtomicReference<DockerInfrastructureService.BasicContainerState> deathState = new AtomicReference<>();
-            int status = Observable.zip(all, objects -> {
-                boolean isRunning = false;
-                for (Object o : objects) {
-                    DockerInfrastructureService.BasicContainerState state = (DockerInfrastructureService.BasicContainerState) o;
-                    logger.info("{}({}): status = {}, health = {}, dead = {}, ongoing = {}", state.getContainerName(), StringUtils.substring(state.getContainerId(), 0, 12), state.getStatus(), state.getHealthStatus(), state.isDead(), state.isOnGoing());
-                    if (state.isDead()) {
-                        deathState.set(state);
-                        logger.info("{}({}) IS DEAD: status = {}, health = {}, dead = {}, ongoing = {}", state.getContainerName(), StringUtils.substring(state.getContainerId(), 0, 12), state.getStatus(), state.getHealthStatus(), state.isDead(), state.isOnGoing());
-                        return -1;
-                    }
-                    if (state.isOnGoing()) {
-                        isRunning = true;
-                    }
-                    if (state.getHealthStatus().equalsIgnoreCase("unhealthy")) {
-                        OutputStreamWriter writer = new OutputStreamWriter(System.err);
-                        dockerService.streamLogs(state.getContainerId(), writer);
-                        writer.flush();
-                        logger.error("Container not healthy: " + state.getContainerName());
-                    }
-                }
-                if (isRunning) {
-                    return 1;
-                }
-                return 0;
-            }).blockingFirst();
-            if (status == -1) {
-                OutputStreamWriter writer = new OutputStreamWriter(System.err);
-                dockerService.streamLogs(deathState.get().getContainerId(), writer);
-                writer.flush();
-                throw new RuntimeException("There's a container not healthy: " + deathState.get().getContainerName());
-            }
-            if (status == 0) {
-                break;
-            }
+        // containers are followed via Docker events until they are healthy or one of them dies
+        List<DockerInfrastructureService.BasicContainerState> states = Observable.fromIterable(containerIds)
+            .flatMap(id -> dockerService.stateChanges(id)
+                .doOnNext(this::logState)
+                .filter(state -> state.isDead() || !state.isOnGoing())
+                .take(1))
+            .takeUntil(DockerInfrastructureService.BasicContainerState::isDead)
+            .toList()
+            .timeout(CONTAINERS_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, Single.error(new RuntimeException("Wait timed out!")))
+            .blockingGet();
+        Optional<DockerInfrastructureService.BasicContainerState> deathState = states.stream().filter(DockerInfrastructureService.BasicContainerState::isDead).findFirst();
+        if (deathState.isPresent()) {
+            OutputStreamWriter writer = new OutputStreamWriter(System.err);
+            dockerService.streamLogs(deathState.get().getContainerId(), writer);
+            writer.flush();
+            throw new RuntimeException("There's a container not healthy: " + deathState.get().getContainerName());
+        }
+        logger.info("All containers are healthy");
+        waitForLiveness();
+        logger.info("Network must be ready!");
+    }
 
-            logger.info("Waiting 60s ... as containers are still starting up");
-            Thread.sleep(60000);
-            allUp++;
+    private void logState(DockerInfrastructureService.BasicContainerState state) throws IOException {
+        logger.info("{}({}): status = {}, health = {}, dead = {}, ongoing = {}", state.getContainerName(), StringUtils.substring(state.getContainerId(), 0, 12), state.getStatus(), state.getHealthStatus(), state.isDead(), state.isOnGoing());
+        if (StringUtils.equalsIgnoreCase("unhealthy", state.getHealthStatus())) {
+            OutputStreamWriter writer = new OutputStreamWriter(System.err);
+            dockerService.streamLogs(state.getContainerId(), writer);
+            writer.flush();
+            logger.error("Container not healthy: " + state.getContainerName());
         }
-        // grace period to allow network to start up
-        if (allUp == 1) {
-            logger.info("All good!");
-        } else if (allUp < attemptCount) {
-            Duration wait = quorumNetworkProperty.getConsensusGracePeriod();
-            logger.info("Waiting {}s ... as grace period for network to start", wait.toSeconds());
-            Thread.sleep(wait.toMillis());
-        } else {
-            throw new RuntimeException("Wait timed out!");
+    }
+
+    /**
+     * Healthy containers don't mean the network is ready: wait for nodes to have peers and,
+     * unless blocks are only minted on demand (raft), for their chain to move forward.
+     * This replaces the fixed consensus grace period, which is now the upper bound (x4) of the wait.
+     */
+    private void waitForLiveness() {
+        Duration deadline = quorumNetworkProperty.getConsensusGracePeriod().multipliedBy(4);
+        Collection<QuorumNetworkProperty.Node> nodes = quorumNetworkProperty.getNodes().values();
+        boolean expectPeers = nodes.size() > 1;
+        boolean expectBlocks = !"raft".equalsIgnoreCase(quorumNetworkProperty.getConsensus());
+        try {
+            Observable.fromIterable(nodes)
+                .flatMapCompletable(node -> Completable.mergeArray(
+                    expectPeers ? peersConnected(node) : Completable.complete(),
+                    expectBlocks ? chainHeadTracker.heads(node).skip(1).take(1).ignoreElements() : Completable.complete()))
+                .timeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .blockingAwait();
+            logger.info("All {} nodes are live", nodes.size());
+        } catch (RuntimeException e) {
+            logger.warn("Nodes are not all live after {}s, carrying on: {}", deadline.toSeconds(), e.getMessage());
         }
-        logger.info("Network must be ready!");
+    }
+
+    private Completable peersConnected(QuorumNetworkProperty.Node node) {
+        Web3j client = connectionFactory.getWeb3jConnection(node);
+        return Observable.interval(0, 1, TimeUnit.SECONDS)
+            .concatMap(tick -> client.netPeerCount().flowable().toObservable()
+                .onErrorResumeNext(Observable.empty()))
+            .filter(count -> !count.hasError() && count.getQuantity().signum() > 0)
+            .take(1)
+            .doOnNext(count -> logger.debug("{} has {} peers", node.getName(), count.getQuantity()))
+            .ignoreElements();
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Privacy address and account aliases of all nodes in a network, indexed by alias.
+ * <p>
+ * It's immutable and rebuilt by {@link QuorumNetworkProperty#setNodes(Map)}. Lookups return all addresses having
+ * an alias, in the order of the nodes. Privacy address aliases defined in more than one node are logged as
+ * warnings when the index is built as looking them up by alias alone fails. Account aliases like {@code Default}
+ * are commonly defined in every node.
+ */
+public final class AliasIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AliasIndex.class);
+
+    private final Map<String, List<String>> privacyAddresses;
+    private final Map<String, List<String>> accountAddresses;
+
+    private AliasIndex(Map<String, List<String>> privacyAddresses, Map<String, List<String>> accountAddresses) {
+        this.privacyAddresses = privacyAddresses;
+        this.accountAddresses = accountAddresses;
+    }
+
+    public static AliasIndex of(Map<String, QuorumNetworkProperty.Node> nodes) {
+        return new AliasIndex(
+            index(nodes, "privacy address", QuorumNetworkProperty.Node::getPrivacyAddressAliases, true),
+            index(nodes, "account", QuorumNetworkProperty.Node::getAccountAliases, false));
+    }
+
+    /**
+     * @return privacy addresses having {@code alias}, empty if there is none
+     */
+    public List<String> privacyAddresses(String alias) {
+        return privacyAddresses.getOrDefault(alias, Collections.emptyList());
+    }
+
+    /**
+     * @return account addresses having {@code alias}, empty if there is none
+     */
+    public List<String> accountAddresses(String alias) {
+        return accountAddresses.getOrDefault(alias, Collections.emptyList());
+    }
+
+    private static Map<String, List<String>> index(Map<String, QuorumNetworkProperty.Node> nodes, String kind,
+                                                   Function<QuorumNetworkProperty.Node, Map<String, String>> aliases, boolean warnDuplicates) {
+        Map<String, List<String>> addresses = new HashMap<>();
+        Map<String, List<String>> owners = new HashMap<>();
+        nodes.forEach((name, node) -> {
+            Map<String, String> nodeAliases = aliases.apply(node);
+            if (nodeAliases == null) {
+                return;
+            }
+            nodeAliases.forEach((alias, address) -> {
+                addresses.computeIfAbsent(alias, k -> new ArrayList<>()).add(address);
+                owners.computeIfAbsent(alias, k -> new ArrayList<>()).add(name);
+            });
+        });
+        Map<String, List<String>> index = new HashMap<>();
+        addresses.forEach((alias, list) -> {
+            if (list.size() > 1 && warnDuplicates) {
+                logger.warn("{} alias {} is defined in {} nodes: {}", kind, alias, list.size(), owners.get(alias));
+            } else if (list.size() > 1) {
+                logger.debug("{} alias {} is defined in {} nodes: {}", kind, alias, list.size(), owners.get(alias));
+            }
+            index.put(alias, Collections.unmodifiableList(list));
+        });
+        return Collections.unmodifiableMap(index);
+    }
+}
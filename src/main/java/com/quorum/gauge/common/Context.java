@@ -74,4 +74,44 @@ public class Context {
     public static String retrievePSI() {
         return psiHolder.get();
     }
+
+    /**
+     * @return values of the current thread so they can be restored in another thread
+     */
+    public static Snapshot capture() {
+        return new Snapshot(getConnectionFactory(), retrieveAccessToken(), retrievePSI());
+    }
+
+    public static class Snapshot {
+        private final QuorumNodeConnectionFactory connectionFactory;
+        private final String accessToken;
+        private final String psi;
+
+        private Snapshot(QuorumNodeConnectionFactory connectionFactory, String accessToken, String psi) {
+            this.connectionFactory = connectionFactory;
+            this.accessToken = accessToken;
+            this.psi = psi;
+        }
+
+        /**
+         * Set the captured values in the current thread, replacing whatever it had
+         */
+        public void restore() {
+            if (connectionFactory == null) {
+                connectionFactoryThreadLocal.remove();
+            } else {
+                connectionFactoryThreadLocal.set(connectionFactory);
+            }
+            accessTokenHolder.set(accessToken);
+            psiHolder.set(psi);
+        }
+
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        public String getPSI() {
+            return psi;
+        }
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.common;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Scheduler} shared by all steps for blocking work, e.g.: sending many transactions concurrently.
+ * <p>
+ * Tasks run in virtual threads when the JDK supports them, otherwise in a bounded pool whose idle threads
+ * are reused and eventually released. {@link Context} values of the thread scheduling a task are
+ * set in the thread running it and reverted afterwards.
+ * <p>
+ * Use {@link #with(Context.Snapshot)} when tasks are scheduled from threads without the right values,
+ * e.g.: timers or items emitted by other schedulers.
+ */
+public final class ContextScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ContextScheduler.class);
+
+    // only when virtual threads are not available
+    private static final int MAX_POOL_SIZE = 256;
+
+    private static final boolean virtual;
+    private static final ExecutorService executor;
+    private static final Scheduler shared;
+
+    static {
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        virtual = virtualThreadExecutor != null;
+        executor = virtual ? virtualThreadExecutor : newPool();
+        shared = Schedulers.from(new ContextPropagatingExecutor(executor, Context::capture));
+    }
+
+    private ContextScheduler() {
+    }
+
+    public static Scheduler shared() {
+        return shared;
+    }
+
+    /**
+     * @return a scheduler running tasks in the same threads as {@link #shared()} with {@code context}
+     * instead of the values of the thread scheduling them
+     */
+    public static Scheduler with(Context.Snapshot context) {
+        return Schedulers.from(new ContextPropagatingExecutor(executor, () -> context));
+    }
+
+    /**
+     * @return whether tasks run in virtual threads
+     */
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    // looked up reflectively so this still builds and runs with JDKs without virtual threads
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.debug("Using virtual threads for the shared scheduler");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Virtual threads are not available, using a pool of up to {} threads: {}", MAX_POOL_SIZE, e.toString());
+            return null;
+        }
+    }
+
+    private static ExecutorService newPool() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_POOL_SIZE, MAX_POOL_SIZE, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "RxJavaShared-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static class ContextPropagatingExecutor implements Executor {
+        private final Executor delegate;
+        private final Supplier<Context.Snapshot> contextSupplier;
+
+        ContextPropagatingExecutor(Executor delegate, Supplier<Context.Snapshot> contextSupplier) {
+            this.delegate = delegate;
+            this.contextSupplier = contextSupplier;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            Context.Snapshot context = contextSupplier.get();
+            delegate.execute(() -> {
+                Context.Snapshot previous = Context.capture();
+                context.restore();
+                try {
+                    command.run();
+                } finally {
+                    previous.restore();
+                }
+            });
+        }
+    }
+}
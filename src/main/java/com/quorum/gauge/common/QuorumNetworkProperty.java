@@ -40,6 +40,10 @@ public class QuorumNetworkProperty {
     private HashicorpVaultServerProperty hashicorpVaultServer;
     private DockerInfrastructureProperty dockerInfrastructure = new DockerInfrastructureProperty();
     private OAuth2ServerProperty oauth2Server;
+    private RpcProperty rpc = new RpcProperty();
+    private MockNodeProperty mockNode = new MockNodeProperty();
+    private MockTesseraProperty mockTessera = new MockTesseraProperty();
+    private AliasIndex aliasIndex = AliasIndex.of(nodes);
 
     public SocksProxy getSocksProxy() {
         return socksProxy;
@@ -56,6 +60,14 @@ public class QuorumNetworkProperty {
     public void setNodes(Map<String, Node> nodes) {
         nodes.forEach( (key,val) -> val.setName(key));
         this.nodes = nodes;
+        this.aliasIndex = AliasIndex.of(nodes);
+    }
+
+    /**
+     * @return aliases of the current {@link #getNodes()}
+     */
+    public AliasIndex getAliasIndex() {
+        return aliasIndex;
     }
 
     public QuorumNode getQuorumNode(QuorumNetworkProperty.Node node) {
@@ -135,6 +147,30 @@ public class QuorumNetworkProperty {
         this.oauth2Server = oauth2Server;
     }
 
+    public RpcProperty getRpc() {
+        return rpc;
+    }
+
+    public void setRpc(RpcProperty rpc) {
+        this.rpc = rpc;
+    }
+
+    public MockNodeProperty getMockNode() {
+        return mockNode;
+    }
+
+    public void setMockNode(MockNodeProperty mockNode) {
+        this.mockNode = mockNode;
+    }
+
+    public MockTesseraProperty getMockTessera() {
+        return mockTessera;
+    }
+
+    public void setMockTessera(MockTesseraProperty mockTessera) {
+        this.mockTessera = mockTessera;
+    }
+
     public static class SocksProxy {
         /**
          * This configuration allows to create a proxy server that supports dynamic port forwarding
@@ -225,6 +261,8 @@ public class QuorumNetworkProperty {
         private Map<String, String> privacyAddressAliases = new LinkedHashMap<>();
         private Map<String, String> accountAliases = new LinkedHashMap<>();
         private String url;
+        // optional WebSocket endpoint, enables push-based subscriptions instead of HTTP polling
+        private String wsUrl;
         private String thirdPartyUrl;
         private String istanbulValidatorId;
         private String enodeUrl;
@@ -247,6 +285,14 @@ public class QuorumNetworkProperty {
             this.url = url;
         }
 
+        public String getWsUrl() {
+            return wsUrl;
+        }
+
+        public void setWsUrl(String wsUrl) {
+            this.wsUrl = wsUrl;
+        }
+
         public String getIstanbulValidatorId() {
             return istanbulValidatorId;
         }
@@ -370,6 +416,7 @@ public class QuorumNetworkProperty {
         private String targetQuorumImage;
         // Tessera image provided by Terraform var.tessera_docker_image
         private String targetTesseraImage;
+        private LogCaptureProperty logCapture = new LogCaptureProperty();
 
         public DockerInfrastructureProperty() {
             this.enabled = false;
@@ -415,6 +462,65 @@ public class QuorumNetworkProperty {
             this.targetTesseraImage = targetTesseraImage;
         }
 
+        public LogCaptureProperty getLogCapture() {
+            return logCapture;
+        }
+
+        public void setLogCapture(LogCaptureProperty logCapture) {
+            this.logCapture = logCapture;
+        }
+
+        public static class LogCaptureProperty {
+            private boolean enabled;
+            private String directory = "build/container-logs";
+            // uncompressed bytes written to a file before rolling over to a new one
+            private long maxFileSize = 64 * 1024 * 1024;
+            // rolled over files kept per container, older ones are deleted
+            private int maxFiles = 5;
+            // lines waiting to be written, new lines are dropped when full
+            private int bufferSize = 10_000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public long getMaxFileSize() {
+                return maxFileSize;
+            }
+
+            public void setMaxFileSize(long maxFileSize) {
+                this.maxFileSize = maxFileSize;
+            }
+
+            public int getMaxFiles() {
+                return maxFiles;
+            }
+
+            public void setMaxFiles(int maxFiles) {
+                this.maxFiles = maxFiles;
+            }
+
+            public int getBufferSize() {
+                return bufferSize;
+            }
+
+            public void setBufferSize(int bufferSize) {
+                this.bufferSize = bufferSize;
+            }
+        }
+
         public static class DockerContainerProperty {
             private String quorumContainerId;
             private String tesseraContainerId;
@@ -446,6 +552,184 @@ public class QuorumNetworkProperty {
         }
     }
 
+    /**
+     * Tuning of how JSON RPC requests are sent to the nodes
+     */
+    public static class RpcProperty {
+        // max number of requests in a single JSON RPC batch
+        private int batchSize = 100;
+        // max number of batches in flight to the same node
+        private int batchConcurrency = 4;
+        private MicroBatchingProperty microBatching = new MicroBatchingProperty();
+        // OkHttp dispatcher limit for asynchronous calls, its default of 5 is too low for fan-out steps
+        private int maxRequestsPerHost = 64;
+        private ConcurrencyLimitProperty concurrencyLimit = new ConcurrencyLimitProperty();
+        // record count, bytes and latency of requests per scenario, step, node and method
+        private boolean metricsEnabled = true;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getBatchConcurrency() {
+            return batchConcurrency;
+        }
+
+        public void setBatchConcurrency(int batchConcurrency) {
+            this.batchConcurrency = batchConcurrency;
+        }
+
+        public MicroBatchingProperty getMicroBatching() {
+            return microBatching;
+        }
+
+        public void setMicroBatching(MicroBatchingProperty microBatching) {
+            this.microBatching = microBatching;
+        }
+
+        public int getMaxRequestsPerHost() {
+            return maxRequestsPerHost;
+        }
+
+        public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        public ConcurrencyLimitProperty getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        public void setConcurrencyLimit(ConcurrencyLimitProperty concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+
+        public boolean isMetricsEnabled() {
+            return metricsEnabled;
+        }
+
+        public void setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+        }
+    }
+
+    /**
+     * Adaptive per endpoint concurrency limit and circuit breaker for HTTP requests
+     */
+    public static class ConcurrencyLimitProperty {
+        private boolean enabled = false;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        // multiplier applied to the limit on failure
+        private double backoffRatio = 0.9;
+        // how long a request waits for a slot before failing
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+        // consecutive failures before the circuit opens
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public Duration getAcquireTimeout() {
+            return acquireTimeout;
+        }
+
+        public void setAcquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+    }
+
+    /**
+     * Coalesce requests sent to the same node within a small window into a single JSON RPC batch
+     */
+    public static class MicroBatchingProperty {
+        private boolean enabled = false;
+        private Duration window = Duration.ofMillis(2);
+        private int maxSize = 50;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
     public static class OAuth2ServerProperty {
         private String clientEndpoint;
         private String adminEndpoint;
@@ -577,4 +861,112 @@ public class QuorumNetworkProperty {
             this.pluginAcctDir = pluginAcctDir;
         }
     }
+
+    /**
+     * In-process fake node, see {@code com.quorum.gauge.services.MockQuorumNodeServer}
+     */
+    public static class MockNodeProperty {
+        private boolean enabled;
+        // 0 picks a free port
+        private int port;
+        private Duration blockPeriod = Duration.ofSeconds(1);
+        // when false, blocks are only mined if there are pending transactions, like raft
+        private boolean mineEmptyBlocks = true;
+        private long chainId = 1337;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public Duration getBlockPeriod() {
+            return blockPeriod;
+        }
+
+        public void setBlockPeriod(Duration blockPeriod) {
+            this.blockPeriod = blockPeriod;
+        }
+
+        public boolean isMineEmptyBlocks() {
+            return mineEmptyBlocks;
+        }
+
+        public void setMineEmptyBlocks(boolean mineEmptyBlocks) {
+            this.mineEmptyBlocks = mineEmptyBlocks;
+        }
+
+        public long getChainId() {
+            return chainId;
+        }
+
+        public void setChainId(long chainId) {
+            this.chainId = chainId;
+        }
+    }
+
+    /**
+     * In-process privacy manager, see {@code com.quorum.gauge.services.MockTesseraServer}
+     */
+    public static class MockTesseraProperty {
+        private boolean enabled;
+        // 0 picks a free port
+        private int port;
+        // added to every request
+        private Duration latency = Duration.ZERO;
+        // added for every KiB of payload, on top of latency
+        private Duration latencyPerKb = Duration.ZERO;
+        // larger payloads are rejected with 413
+        private int maxPayloadSize = 10 * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public Duration getLatency() {
+            return latency;
+        }
+
+        public void setLatency(Duration latency) {
+            this.latency = latency;
+        }
+
+        public Duration getLatencyPerKb() {
+            return latencyPerKb;
+        }
+
+        public void setLatencyPerKb(Duration latencyPerKb) {
+            this.latencyPerKb = latencyPerKb;
+        }
+
+        public int getMaxPayloadSize() {
+            return maxPayloadSize;
+        }
+
+        public void setMaxPayloadSize(int maxPayloadSize) {
+            this.maxPayloadSize = maxPayloadSize;
+        }
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.common;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Retry an {@link Observable} using {@code retryWhen(policy)}.
+ * <p>
+ * The delay between attempts grows exponentially from the initial delay up to the max delay, with random jitter.
+ * Retries stop when the max number of attempts is reached, when the deadline since the first attempt has passed
+ * or when the error is not retryable. Retries happen in another thread, with the {@link Context} values of the
+ * thread creating the policy set only while the source is subscribed again.
+ * <p>
+ * Attempts are counted per policy name, see {@link #statistics()}.
+ */
+public class RetryPolicy implements Function<Observable<? extends Throwable>, Observable<?>> {
+    private static final Logger logger = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private static final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    private final Context.Snapshot context = Context.capture();
+    private String name = "default";
+    private int maxAttempts = Integer.MAX_VALUE;
+    private Duration initialDelay;
+    private Duration maxDelay;
+    private double multiplier = 2;
+    private double jitter = 0.2;
+    private Duration deadline;
+    private Predicate<Throwable> retryable = e -> true;
+
+    protected RetryPolicy(Duration initialDelay, Duration maxDelay) {
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Delays start at {@code initialDelay} and double until {@code maxDelay}
+     */
+    public static RetryPolicy exponential(Duration initialDelay, Duration maxDelay) {
+        return new RetryPolicy(initialDelay, maxDelay);
+    }
+
+    /**
+     * Same delay between all attempts, without jitter
+     */
+    public static RetryPolicy fixed(Duration delay) {
+        return new RetryPolicy(delay, delay).withMultiplier(1).withJitter(0);
+    }
+
+    /**
+     * @param maxAttempts including the first one
+     */
+    public RetryPolicy withMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Give up once {@code deadline} has passed since the first attempt.
+     * A delay ending after the deadline is shortened so that the last attempt starts at the deadline.
+     */
+    public RetryPolicy withDeadline(Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public RetryPolicy withMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * @param jitter fraction of each delay that is randomized, between 0 and 1
+     */
+    public RetryPolicy withJitter(double jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    public RetryPolicy retryIf(Predicate<Throwable> retryable) {
+        this.retryable = retryable;
+        return this;
+    }
+
+    /**
+     * @param name groups attempts in {@link #statistics()}
+     */
+    public RetryPolicy named(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * @return whether the error is likely to go away by itself, e.g.: I/O errors or timeouts
+     */
+    public static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof IOException || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Observable<?> apply(final Observable<? extends Throwable> errors) {
+        // state is per subscription so the same policy can be reused
+        long start = System.nanoTime();
+        AtomicInteger attempts = new AtomicInteger(1);
+        Statistics stats = statistics.computeIfAbsent(name, k -> new Statistics());
+        return errors.flatMap(e -> {
+            int attempt = attempts.getAndIncrement();
+            if (!retryable.test(e)) {
+                return Observable.error(e);
+            }
+            long delayMillis = delayMillis(attempt);
+            if (deadline != null) {
+                long remainingMillis = deadline.toMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (remainingMillis <= 0) {
+                    stats.exhausted.incrementAndGet();
+                    return Observable.error(new RuntimeException("retry timed out after " + attempt + " attempts in " + deadline, e));
+                }
+                delayMillis = Math.min(delayMillis, remainingMillis);
+            }
+            if (attempt >= maxAttempts) {
+                stats.exhausted.incrementAndGet();
+                return Observable.error(new RuntimeException("retry timed out after " + attempt + " attempts", e));
+            }
+            stats.retries.incrementAndGet();
+            stats.delayMillis.addAndGet(delayMillis);
+            logger.debug("[{}] attempt {} failed, retrying in {} ms: {}", name, attempt, delayMillis, e.getMessage());
+            // the source is subscribed again from the timer thread
+            return Observable.timer(delayMillis, TimeUnit.MILLISECONDS, ContextScheduler.with(context));
+        });
+    }
+
+    // before the deadline is applied
+    long delayMillis(int attempt) {
+        double delay = initialDelay.toMillis() * Math.pow(multiplier, attempt - 1);
+        delay = Math.min(delay, maxDelay.toMillis());
+        if (jitter > 0) {
+            delay = delay * (1 - jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return Math.round(delay);
+    }
+
+    /**
+     * @return statistics keyed by policy name, since the last {@link #resetStatistics()}
+     */
+    public static Map<String, Statistics> statistics() {
+        return Collections.unmodifiableMap(new TreeMap<>(statistics));
+    }
+
+    public static void resetStatistics() {
+        statistics.clear();
+    }
+
+    public static class Statistics {
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong exhausted = new AtomicLong();
+        private final AtomicLong delayMillis = new AtomicLong();
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * @return number of times retrying gave up
+         */
+        public long getExhausted() {
+            return exhausted.get();
+        }
+
+        /**
+         * @return total time spent waiting between attempts
+         */
+        public long getDelayMillis() {
+            return delayMillis.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("retries=%d, exhausted=%d, delay=%dms", getRetries(), getExhausted(), getDelayMillis());
+        }
+    }
+}
@@ -20,46 +20,30 @@
 package com.quorum.gauge.common;
 
 import io.reactivex.Observable;
-import io.reactivex.functions.Function;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 /**
  * Retry an {@link Observable} with configurable retry limit and timeout
  * between attempts
+ *
+ * @see RetryPolicy for backoff and deadlines
  */
-public class RetryWithDelay implements Function<Observable<? extends Throwable>, Observable<?>> {
-
-    private final int maxRetries;
-
-    private final int retryDelayMillis;
-
-    private int retryCount;
-
-    private String accessToken;
+public class RetryWithDelay extends RetryPolicy {
 
+    /**
+     * Attempts are {@code retryDelayMillis} apart, for as long as the original backoff would have retried:
+     * {@code maxRetries - 1} retries, the n-th one after n seconds
+     */
     public RetryWithDelay(final int maxRetries, final int retryDelayMillis) {
-        this.maxRetries = maxRetries;
-        this.retryDelayMillis = retryDelayMillis;
-        this.retryCount = 0;
-        // save the current acccess token so it can be used later when retry happening in other thread
-        this.accessToken = Context.retrieveAccessToken();
+        super(Duration.ofMillis(retryDelayMillis), Duration.ofMillis(retryDelayMillis));
+        withMultiplier(1).withJitter(0).withDeadline(linearBackoffBudget(maxRetries)).named("retry with delay");
     }
 
-    @Override
-    public Observable<?> apply(final Observable<? extends Throwable> attempts) {
-        return attempts
-            .flatMap(throwable -> {
-                if (++retryCount < maxRetries) {
-                    // When this Observable calls onNext, the original
-                    // Observable will be retried
-                    return Observable.timer(retryCount, TimeUnit.SECONDS)
-                        .doOnNext(tick -> Context.storeAccessToken(accessToken));
-                }
-
-                // Max retries hit, just pass the error along.
-                return Observable.error(new RuntimeException("retry timed out"));
-            });
+    // 1 + 2 + ... + (maxRetries - 1) seconds
+    static Duration linearBackoffBudget(int maxRetries) {
+        long retries = Math.max(0, maxRetries - 1);
+        return Duration.ofSeconds(retries * (retries + 1) / 2);
     }
 
 }
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.ext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quorum.gauge.common.Context;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces requests sent to the same node at about the same time into a single {@link BatchRequest}
+ * and hands each caller its own response.
+ * <p>
+ * A batch is sent when it reaches the max size or when the window since its first request elapses.
+ * Requests are only coalesced with others carrying the same access token and PSI, as these are added
+ * to the HTTP request by the interceptors and apply to the whole batch.
+ */
+public class BatchingWeb3jService implements Web3jService {
+    private final Web3jService delegate;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    // guarded by itself
+    private final Map<String, PendingBatch> pendingBatches = new HashMap<>();
+    // in number of requests
+    private final Histogram batchSizes = new ConcurrentHistogram(3);
+    // in microseconds, from the time a request is queued until its batch is sent
+    private final Histogram waitTimes = new ConcurrentHistogram(3);
+
+    public BatchingWeb3jService(Web3jService delegate, Duration window, int maxBatchSize) {
+        this.delegate = delegate;
+        this.window = window;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (request instanceof BatchRequest) {
+            return delegate.send(request, responseType);
+        }
+        try {
+            return enqueue(request, responseType).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        if (request instanceof BatchRequest) {
+            return delegate.sendAsync(request, responseType);
+        }
+        return enqueue(request, responseType);
+    }
+
+    @Override
+    public org.web3j.protocol.core.BatchResponse sendBatch(org.web3j.protocol.core.BatchRequest batchRequest) throws IOException {
+        return delegate.sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<org.web3j.protocol.core.BatchResponse> sendBatchAsync(org.web3j.protocol.core.BatchRequest batchRequest) {
+        return delegate.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public Histogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    private <T extends Response> CompletableFuture<T> enqueue(Request<?, ?> request, Class<T> responseType) {
+        String accessToken = Context.retrieveAccessToken();
+        String psi = Context.retrievePSI();
+        PendingRequest<T> pending = new PendingRequest<>(request, responseType);
+        PendingBatch full = null;
+        synchronized (pendingBatches) {
+            PendingBatch batch = pendingBatches.computeIfAbsent(accessToken + "#" + psi, k -> {
+                PendingBatch b = new PendingBatch(k, accessToken, psi);
+                Schedulers.io().scheduleDirect(() -> flush(b), window.toNanos(), TimeUnit.NANOSECONDS);
+                return b;
+            });
+            batch.requests.add(pending);
+            if (batch.requests.size() >= maxBatchSize) {
+                pendingBatches.remove(batch.key, batch);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return pending.future;
+    }
+
+    private void flush(PendingBatch batch) {
+        synchronized (pendingBatches) {
+            if (!pendingBatches.remove(batch.key, batch)) {
+                // already sent because it was full
+                return;
+            }
+        }
+        send(batch);
+    }
+
+    private void send(PendingBatch batch) {
+        long now = System.nanoTime();
+        batchSizes.recordValue(batch.requests.size());
+        for (PendingRequest<?> r : batch.requests) {
+            waitTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(now - r.queuedAt));
+        }
+        String previousAccessToken = Context.retrieveAccessToken();
+        String previousPSI = Context.retrievePSI();
+        Context.storeAccessToken(batch.accessToken);
+        Context.storePSI(batch.psi);
+        try {
+            if (batch.requests.size() == 1) {
+                PendingRequest<?> r = batch.requests.get(0);
+                r.complete(delegate.send(r.request, r.responseType));
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            List<Request<?, ObjectResponse>> requests = batch.requests.stream()
+                .map(r -> (Request<?, ObjectResponse>) (Request) r.request)
+                .collect(Collectors.toList());
+            BatchResponse batchResponse = delegate.send(new BatchRequest(delegate, requests), BatchResponse.class);
+            Map<Long, ObjectResponse> responses = batchResponse.getResponses().stream()
+                .collect(Collectors.toMap(Response::getId, Function.identity(), (a, b) -> a));
+            for (PendingRequest<?> r : batch.requests) {
+                ObjectResponse response = responses.get(r.request.getId());
+                if (response == null) {
+                    r.future.completeExceptionally(new IOException("no response for request " + r.request.getId() + " in batch"));
+                } else {
+                    r.complete(toResponse(response, r.responseType));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            batch.requests.forEach(r -> r.future.completeExceptionally(e));
+        } finally {
+            Context.storeAccessToken(previousAccessToken);
+            Context.storePSI(previousPSI);
+        }
+    }
+
+    // responses in a batch are generic so they are converted to what the caller expects
+    private <T extends Response> T toResponse(ObjectResponse response, Class<T> responseType) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("jsonrpc", response.getJsonrpc());
+        node.put("id", response.getId());
+        if (response.hasError()) {
+            node.set("error", objectMapper.valueToTree(response.getError()));
+        } else {
+            node.set("result", objectMapper.valueToTree(response.getResult()));
+        }
+        return objectMapper.treeToValue(node, responseType);
+    }
+
+    private static class PendingBatch {
+        final String key;
+        final String accessToken;
+        final String psi;
+        final List<PendingRequest<?>> requests = new ArrayList<>();
+
+        PendingBatch(String key, String accessToken, String psi) {
+            this.key = key;
+            this.accessToken = accessToken;
+            this.psi = psi;
+        }
+    }
+
+    private static class PendingRequest<T extends Response> {
+        final Request<?, ?> request;
+        final Class<T> responseType;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long queuedAt = System.nanoTime();
+
+        PendingRequest(Request<?, ?> request, Class<T> responseType) {
+            this.request = request;
+            this.responseType = responseType;
+        }
+
+        void complete(Response response) {
+            future.complete(responseType.cast(response));
+        }
+    }
+}
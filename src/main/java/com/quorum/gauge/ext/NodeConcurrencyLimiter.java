@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.ext;
+
+import com.quorum.gauge.common.QuorumNetworkProperty.ConcurrencyLimitProperty;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits the number of concurrent HTTP requests per endpoint (host and port) and stops sending
+ * requests to endpoints that keep failing.
+ * <p>
+ * The limit adapts using AIMD: it grows by one for every {@code limit} successful requests and is cut
+ * by {@link ConcurrencyLimitProperty#getBackoffRatio()} on failure. Failures are I/O errors and
+ * 502, 503, 504 or 429 responses. JSON RPC errors are successful HTTP requests.
+ * <p>
+ * After {@link ConcurrencyLimitProperty#getFailureThreshold()} consecutive failures the circuit opens and
+ * requests fail immediately for {@link ConcurrencyLimitProperty#getOpenDuration()}. Then a single probe is let
+ * through and its outcome closes or re-opens the circuit.
+ */
+public class NodeConcurrencyLimiter implements Interceptor {
+    private static final Logger logger = LoggerFactory.getLogger(NodeConcurrencyLimiter.class);
+
+    private final ConcurrencyLimitProperty config;
+    private final Map<String, EndpointLimit> limits = new ConcurrentHashMap<>();
+
+    public NodeConcurrencyLimiter(ConcurrencyLimitProperty config) {
+        this.config = config;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        String endpoint = chain.request().url().host() + ":" + chain.request().url().port();
+        EndpointLimit limit = limits.computeIfAbsent(endpoint, EndpointLimit::new);
+        limit.acquire();
+        boolean success = false;
+        try {
+            Response response = chain.proceed(chain.request());
+            success = !isOverloaded(response.code());
+            return response;
+        } finally {
+            limit.release(success);
+        }
+    }
+
+    /**
+     * @return current concurrency limit of the endpoint, for diagnostics
+     */
+    public double getLimit(String host, int port) {
+        EndpointLimit limit = limits.get(host + ":" + port);
+        return limit == null ? config.getInitialLimit() : limit.limit;
+    }
+
+    private static boolean isOverloaded(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String endpoint) {
+            super("circuit is open for " + endpoint + " after consecutive failures");
+        }
+    }
+
+    private enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private class EndpointLimit {
+        private final String endpoint;
+        // all below are guarded by this
+        private double limit = config.getInitialLimit();
+        private int inFlight;
+        private int consecutiveFailures;
+        private CircuitState state = CircuitState.CLOSED;
+        private long openUntil;
+
+        EndpointLimit(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void acquire() throws IOException {
+            long deadline = System.currentTimeMillis() + config.getAcquireTimeout().toMillis();
+            while (true) {
+                if (state == CircuitState.OPEN) {
+                    if (System.currentTimeMillis() < openUntil) {
+                        throw new CircuitOpenException(endpoint);
+                    }
+                    logger.debug("Probing {} after circuit was open", endpoint);
+                    state = CircuitState.HALF_OPEN;
+                    inFlight++;
+                    return;
+                }
+                // only the probe is in flight while half open
+                int allowed = state == CircuitState.HALF_OPEN ? 1 : (int) limit;
+                if (inFlight < allowed) {
+                    inFlight++;
+                    return;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("timed out waiting for a slot to " + endpoint + ", limit " + allowed);
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted waiting for a slot to " + endpoint, e);
+                }
+            }
+        }
+
+        synchronized void release(boolean success) {
+            inFlight--;
+            if (success) {
+                consecutiveFailures = 0;
+                if (state == CircuitState.HALF_OPEN) {
+                    logger.info("Circuit closed for {}", endpoint);
+                    state = CircuitState.CLOSED;
+                    limit = config.getInitialLimit();
+                }
+                limit = Math.min(config.getMaxLimit(), limit + 1 / limit);
+            } else {
+                consecutiveFailures++;
+                limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                if (state == CircuitState.HALF_OPEN || consecutiveFailures >= config.getFailureThreshold()) {
+                    if (state != CircuitState.OPEN) {
+                        logger.warn("Circuit opened for {} after {} consecutive failures", endpoint, consecutiveFailures);
+                    }
+                    state = CircuitState.OPEN;
+                    openUntil = System.currentTimeMillis() + config.getOpenDuration().toMillis();
+                }
+            }
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.ext;
+
+import com.quorum.gauge.services.RpcMetricsService;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records count, bytes and latency of every HTTP request into {@link RpcMetricsService}.
+ * <p>
+ * The JSON RPC method is provided by {@link MeteredHttpService} without reading the request body.
+ * Batches are recorded as {@code batch}, other HTTP calls (e.g.: to Tessera) by their path.
+ */
+public class RpcMetricsInterceptor implements Interceptor {
+    private static final Pattern METHOD = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
+    private static final int PEEK_CHARS = 256;
+    // set by MeteredHttpService while its request goes through the interceptors
+    private static final ThreadLocal<String> currentMethod = new ThreadLocal<>();
+
+    private final RpcMetricsService metrics;
+
+    public RpcMetricsInterceptor(RpcMetricsService metrics) {
+        this.metrics = metrics;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        String method = method(request);
+        long requestBytes = request.body() == null ? 0 : request.body().contentLength();
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            long responseBytes = response.body() == null ? 0 : response.body().contentLength();
+            metrics.record(url.host(), url.port(), method, requestBytes, responseBytes, elapsedMicros(start), !response.isSuccessful());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            metrics.record(url.host(), url.port(), method, requestBytes, 0, elapsedMicros(start), true);
+            throw e;
+        }
+    }
+
+    private static String method(Request request) {
+        String method = currentMethod.get();
+        return method != null ? method : request.method() + " " + request.url().encodedPath();
+    }
+
+    // web3j writes the method near the start of the request
+    static String jsonRpcMethod(String payload) {
+        String head = payload.substring(0, Math.min(payload.length(), PEEK_CHARS)).trim();
+        if (head.startsWith("[")) {
+            return "batch";
+        }
+        Matcher m = METHOD.matcher(head);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * Tells the interceptor which JSON RPC method is being sent, from the payload web3j already has in memory,
+     * so that request bodies don't have to be written again to find out.
+     * OkHttp runs the interceptors of synchronous calls in the calling thread.
+     */
+    public static class MeteredHttpService extends HttpService {
+        public MeteredHttpService(String url, OkHttpClient httpClient, boolean includeRawResponses) {
+            super(url, httpClient, includeRawResponses);
+        }
+
+        @Override
+        protected InputStream performIO(String request) throws IOException {
+            currentMethod.set(jsonRpcMethod(request));
+            try {
+                return super.performIO(request);
+            } finally {
+                currentMethod.remove();
+            }
+        }
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+}
@@ -89,12 +89,11 @@ public class AccountService extends AbstractService {
      * @return account address in the network property
      */
     public String address(String alias) {
-        for (QuorumNetworkProperty.Node node : networkProperty().getNodes().values()) {
-            if (node.getAccountAliases().containsKey(alias)) {
-                return node.getAccountAliases().get(alias);
-            }
+        List<String> matches = networkProperty().getAliasIndex().accountAddresses(alias);
+        if (matches.isEmpty()) {
+            throw new IllegalArgumentException("no such alias in the network property: " + alias);
         }
-        throw new IllegalArgumentException("no such alias in the network property: " + alias);
+        return matches.get(0);
     }
 
     public Observable<String> getAccountAddress(QuorumNetworkProperty.Node source, String ethAccount) {
@@ -103,12 +102,11 @@ public class AccountService extends AbstractService {
         }
         // we don't look up for the address in source Node as we want
         // to serve -ve cases
-        for (QuorumNetworkProperty.Node node : networkProperty().getNodes().values()) {
-            if (node.getAccountAliases().containsKey(ethAccount)) {
-                return Observable.just(node.getAccountAliases().get(ethAccount));
-            }
+        List<String> matches = networkProperty().getAliasIndex().accountAddresses(ethAccount);
+        if (matches.isEmpty()) {
+            throw new IllegalArgumentException("no such account alias: " + ethAccount);
         }
-        throw new IllegalArgumentException("no such account alias: " + ethAccount);
+        return Observable.just(matches.get(0));
     }
 
     public static class ListWalletsResponse extends Response<List<Wallet>> {
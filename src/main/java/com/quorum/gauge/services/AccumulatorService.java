@@ -21,28 +21,36 @@ package com.quorum.gauge.services;
 
 
 import com.quorum.gauge.common.QuorumNetworkProperty;
-import com.quorum.gauge.ext.EthChainId;
 import com.quorum.gauge.ext.PrivateClientTransactionManager;
 import com.quorum.gauge.ext.PublicClientTransactionManager;
 import com.quorum.gauge.sol.Accumulator;
 import io.reactivex.Observable;
+import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.observables.ConnectableObservable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.quorum.PrivacyFlag;
 import org.web3j.quorum.Quorum;
 import org.web3j.quorum.tx.ClientTransactionManager;
+import org.web3j.tx.Contract;
 import org.web3j.tx.ReadonlyTransactionManager;
 import org.web3j.tx.exceptions.ContractCallException;
 
 import java.math.BigInteger;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static com.quorum.gauge.ext.PrivateClientTransactionManager.DEFAULT_MAX_RETRY;
@@ -62,9 +70,12 @@ public class AccumulatorService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     public Observable<? extends Accumulator> createAccumulatorPublicContract(QuorumNetworkProperty.Node source, BigInteger gas, int initVal) {
         Quorum client = connectionFactory().getConnection(source);
-        long chainId = rpcService.call(source, "eth_chainId", Collections.emptyList(), EthChainId.class).blockingFirst().getChainId();
+        long chainId = nodeMetadataCache.chainId(source).blockingFirst();
 
         String address = accountService.getDefaultAccountAddress(source).blockingFirst();
 
@@ -145,7 +156,7 @@ public class AccumulatorService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             return Accumulator.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
@@ -163,10 +174,14 @@ public class AccumulatorService extends AbstractService {
     }
 
     public Disposable subscribeTo(QuorumNetworkProperty.Node node, String contractAddress, List<Accumulator.IncEventEventResponse> list) {
+        Optional<Web3j> webSocket = connectionFactory().getWebSocketConnection(node);
+        if (webSocket.isPresent()) {
+            return subscribeTo(node, webSocket.get(), contractAddress, list);
+        }
         Quorum client = connectionFactory().getConnection(node, POLLING_INTERVAL);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             Accumulator acc =  Accumulator.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
@@ -178,6 +193,40 @@ public class AccumulatorService extends AbstractService {
         }
     }
 
+    /**
+     * Past events are read once via {@code eth_getLogs} and new ones are pushed by the node via {@code eth_subscribe logs}.
+     * The live subscription starts before reading past events so nothing is missed, duplicates are dropped.
+     */
+    private Disposable subscribeTo(QuorumNetworkProperty.Node node, Web3j webSocket, String contractAddress, List<Accumulator.IncEventEventResponse> list) {
+        Quorum client = connectionFactory().getConnection(node);
+        ConnectableObservable<Log> liveLogs = webSocket.logsNotifications(List.of(contractAddress), List.of(EventEncoder.encode(Accumulator.INCEVENT_EVENT)))
+            .toObservable()
+            .map(n -> toLog(n.getParams().getResult()))
+            .replay();
+        Disposable connection = liveLogs.connect();
+        EthFilter filter = new EthFilter(DefaultBlockParameterName.EARLIEST, DefaultBlockParameterName.LATEST, contractAddress);
+        filter.addSingleTopic(EventEncoder.encode(Accumulator.INCEVENT_EVENT));
+        Observable<Log> pastLogs = client.ethGetLogs(filter).flowable().toObservable()
+            .flatMapIterable(EthLog::getLogs)
+            .map(r -> (Log) r.get());
+        Disposable subscription = Observable.concat(pastLogs, liveLogs)
+            .distinct(l -> l.getTransactionHash() + "#" + l.getLogIndexRaw())
+            .map(l -> {
+                EventValues values = Contract.staticExtractEventParameters(Accumulator.INCEVENT_EVENT, l);
+                Accumulator.IncEventEventResponse event = new Accumulator.IncEventEventResponse();
+                event.log = l;
+                event.value = (BigInteger) values.getNonIndexedValues().get(0).getValue();
+                return event;
+            })
+            .subscribe(list::add, e -> logger.error("accumulator.subscribe()", e));
+        return new CompositeDisposable(subscription, connection);
+    }
+
+    private static Log toLog(org.web3j.protocol.websocket.events.Log l) {
+        return new Log(false, l.getLogIndex(), l.getTransactionIndex(), l.getTransactionHash(), l.getBlockHash(),
+            l.getBlockNumber(), l.getAddress(), l.getData(), null, l.getTopics());
+    }
+
     public void sleepForPollingInterval(){
         try {
             Thread.sleep(POLLING_INTERVAL);
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.ContextScheduler;
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import com.quorum.gauge.common.RetryPolicy;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Follows the chain head of nodes, one stream per node shared by all subscribers.
+ * <p>
+ * New blocks are pushed via {@code eth_subscribe newHeads} if the node has a WebSocket endpoint,
+ * otherwise the block number is polled at a fraction of the observed block period so that
+ * fast chains are followed closely and slow ones are not polled needlessly.
+ * Errors, e.g.: while a node is restarting, don't end the stream, the node is polled again later.
+ */
+@Service
+public class ChainHeadTracker extends AbstractService {
+    private static final Logger logger = LoggerFactory.getLogger(ChainHeadTracker.class);
+
+    private static final long MIN_POLLING_INTERVAL_MILLIS = 100;
+    private static final long MAX_POLLING_INTERVAL_MILLIS = 2000;
+    private static final long INITIAL_POLLING_INTERVAL_MILLIS = 250;
+
+    private final Map<String, Observable<BigInteger>> heads = new ConcurrentHashMap<>();
+
+    /**
+     * The stream starts with the latest known block number and is stopped once there are no more subscribers
+     *
+     * @return block numbers of {@code node} as they change
+     */
+    public Observable<BigInteger> heads(Node node) {
+        String key = node.getUrl() + "#" + Context.retrieveAccessToken();
+        return heads.computeIfAbsent(key, k -> newHeads(node));
+    }
+
+    /**
+     * Block until all {@code nodes} have reached {@code height}
+     *
+     * @throws RuntimeException if any node hasn't reached {@code height} within {@code deadline}
+     */
+    public void awaitHeight(BigInteger height, Duration deadline, Node... nodes) {
+        Map<String, BigInteger> lastSeen = new ConcurrentHashMap<>();
+        Observable.fromArray(nodes)
+            .flatMap(node -> heads(node)
+                .doOnNext(h -> lastSeen.put(node.getName(), h))
+                .filter(h -> h.compareTo(height) >= 0)
+                .take(1))
+            .ignoreElements()
+            .timeout(deadline.toMillis(), TimeUnit.MILLISECONDS, Completable.error(() -> new RuntimeException(
+                "Timed out after " + deadline + " waiting for block height " + height + " on " + names(nodes)
+                    + ", last seen: " + new TreeMap<>(lastSeen))))
+            .blockingAwait();
+        logger.debug("Block height {} reached on {}", height, names(nodes));
+    }
+
+    private Observable<BigInteger> newHeads(Node node) {
+        Web3j client = connectionFactory().getWeb3jConnection(node);
+        // polling happens in other threads
+        Scheduler scheduler = ContextScheduler.with(Context.capture());
+        BlockPeriodEstimator estimator = new BlockPeriodEstimator();
+        Observable<BigInteger> current = Observable.defer(() -> client.ethBlockNumber().flowable().toObservable().map(EthBlockNumber::getBlockNumber))
+            .subscribeOn(scheduler)
+            .onErrorResumeNext(e -> {
+                logger.debug("Unable to get block number of {}: {}", node.getName(), e.getMessage());
+                return Observable.empty();
+            });
+        Observable<BigInteger> source = connectionFactory().getWebSocketConnection(node)
+            .map(ws -> Observable.merge(
+                ws.newHeadsNotifications().toObservable().map(n -> Numeric.decodeQuantity(n.getParams().getResult().getNumber())),
+                current))
+            .orElseGet(() -> current.repeatWhen(done -> done.concatMap(
+                tick -> Observable.timer(estimator.pollingIntervalMillis(), TimeUnit.MILLISECONDS, Schedulers.computation()))));
+        return source
+            .retryWhen(RetryPolicy.exponential(Duration.ofMillis(MIN_POLLING_INTERVAL_MILLIS), Duration.ofMillis(MAX_POLLING_INTERVAL_MILLIS))
+                .named("chain head of " + node.getName()))
+            .distinctUntilChanged()
+            .doOnNext(estimator::observe)
+            .replay(1)
+            .refCount();
+    }
+
+    private static String names(Node... nodes) {
+        return Arrays.stream(nodes).map(Node::getName).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Moving average of the time between blocks
+     */
+    private static class BlockPeriodEstimator {
+        private BigInteger lastHead;
+        private long lastChangeNanos;
+        // the first head may have been mined long before it was observed
+        private boolean seenChange;
+        private volatile double periodMillis;
+
+        synchronized void observe(BigInteger head) {
+            long now = System.nanoTime();
+            if (lastHead != null && head.compareTo(lastHead) > 0 && seenChange) {
+                double sample = TimeUnit.NANOSECONDS.toMillis(now - lastChangeNanos) / head.subtract(lastHead).doubleValue();
+                periodMillis = periodMillis == 0 ? sample : 0.7 * periodMillis + 0.3 * sample;
+            }
+            seenChange = lastHead != null;
+            lastHead = head;
+            lastChangeNanos = now;
+        }
+
+        long pollingIntervalMillis() {
+            if (periodMillis == 0) {
+                return INITIAL_POLLING_INTERVAL_MILLIS;
+            }
+            return Math.max(MIN_POLLING_INTERVAL_MILLIS, Math.min(MAX_POLLING_INTERVAL_MILLIS, Math.round(periodMillis / 4)));
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.quorum.gauge.common.QuorumNetworkProperty.DockerInfrastructureProperty.LogCaptureProperty;
+import io.reactivex.disposables.Disposable;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the logs of all Quorum, Tessera and EthSigner containers to gzipped files, one per container name,
+ * rolling over to a new file once it gets too big. Scenario and step markers are written to all files
+ * so the logs of a failed run can be matched with the steps without running it again.
+ * <p>
+ * Lines are queued to a single writer thread. When the queue is full, lines are dropped and the number of
+ * dropped lines is written instead, so containers logging a lot never slow down the tests.
+ * Files are flushed when the writer is idle and at least every {@link #FLUSH_INTERVAL_MILLIS},
+ * they stay readable if the run is killed.
+ */
+@Service
+@ConditionalOnProperty(prefix = "quorum.docker-infrastructure", name = {"enabled", "log-capture.enabled"}, havingValue = "true")
+public class ContainerLogCollector implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ContainerLogCollector.class);
+
+    private static final long FLUSH_INTERVAL_MILLIS = 5000;
+    private static final String MARKER_KEY = "";
+
+    @Autowired
+    QuorumNetworkProperty networkProperty;
+
+    @Autowired
+    DockerInfrastructureService infraService;
+
+    private LogCaptureProperty config;
+    private Path directory;
+    private BlockingQueue<Entry> queue;
+    private Thread writer;
+    private volatile boolean running;
+    // container id -> subscription to its log
+    private final Map<String, Disposable> followed = new ConcurrentHashMap<>();
+    // file name -> lines dropped since the last one written
+    private final Map<String, AtomicLong> dropped = new ConcurrentHashMap<>();
+    // file name -> file, only used by the writer thread
+    private final Map<String, RollingFile> files = new HashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        config = networkProperty.getDockerInfrastructure().getLogCapture();
+        directory = Paths.get(config.getDirectory());
+        Files.createDirectories(directory);
+        queue = new ArrayBlockingQueue<>(config.getBufferSize());
+        running = true;
+        writer = new Thread(this::writeLoop, "ContainerLogCollector");
+        writer.setDaemon(true);
+        writer.start();
+        networkProperty.getDockerInfrastructure().getNodes().values().forEach(p -> {
+            followIfStarted(p.getQuorumContainerId());
+            followIfStarted(p.getTesseraContainerId());
+            p.getEthSignerContainerId().ifPresent(this::followIfStarted);
+        });
+        logger.info("Collecting logs of {} containers in {}", followed.size(), directory.toAbsolutePath());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        followed.values().forEach(Disposable::dispose);
+        followed.clear();
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Write the log of a container, from its start, until the container is removed
+     */
+    public void follow(String containerId) {
+        if (StringUtils.isBlank(containerId) || followed.containsKey(containerId)) {
+            return;
+        }
+        String name = fileName(infraService.getName(containerId).blockingFirst());
+        followed.computeIfAbsent(containerId, id -> infraService.logWatcher().lines(id, Instant.EPOCH)
+            .subscribe(
+                line -> offer(new Entry(name, line.toString())),
+                e -> {
+                    logger.debug("Stopped collecting logs of {}: {}", name, e.getMessage());
+                    followed.remove(id);
+                }));
+    }
+
+    /**
+     * Write {@code text} to the files of all containers, e.g.: when a step starts
+     */
+    public void mark(String text) {
+        offer(new Entry(MARKER_KEY, "===== " + Instant.now() + " " + text + " ====="));
+    }
+
+    // templates are never started, only their clones are
+    private void followIfStarted(String containerId) {
+        if (StringUtils.isBlank(containerId)) {
+            return;
+        }
+        try {
+            if (!StringUtils.equalsIgnoreCase("created", infraService.getState(containerId).blockingFirst().getStatus())) {
+                follow(containerId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Unable to collect logs of container {}: {}", containerId, e.getMessage());
+        }
+    }
+
+    private void offer(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.computeIfAbsent(entry.fileName, k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.currentTimeMillis();
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry != null) {
+                    write(entry);
+                }
+                if (entry == null || System.currentTimeMillis() - lastFlush > FLUSH_INTERVAL_MILLIS) {
+                    files.values().forEach(RollingFile::flush);
+                    lastFlush = System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            files.values().forEach(RollingFile::close);
+            files.clear();
+        }
+    }
+
+    private void write(Entry entry) {
+        AtomicLong droppedMarkers = dropped.get(MARKER_KEY);
+        if (droppedMarkers != null && droppedMarkers.get() > 0) {
+            logger.warn("{} log markers dropped", droppedMarkers.getAndSet(0));
+        }
+        if (MARKER_KEY.equals(entry.fileName)) {
+            files.values().forEach(f -> f.write(entry.line));
+            return;
+        }
+        RollingFile file = files.computeIfAbsent(entry.fileName, RollingFile::new);
+        AtomicLong droppedLines = dropped.get(entry.fileName);
+        if (droppedLines != null && droppedLines.get() > 0) {
+            file.write("..... " + droppedLines.getAndSet(0) + " lines dropped .....");
+        }
+        file.write(entry.line);
+    }
+
+    private static String fileName(String containerName) {
+        return StringUtils.removeStart(containerName, "/").replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private static class Entry {
+        final String fileName;
+        final String line;
+
+        Entry(String fileName, String line) {
+            this.fileName = fileName;
+            this.line = line;
+        }
+    }
+
+    /**
+     * {@code <name>.log.gz} is being written, {@code <name>.1.log.gz} is the previous one and so on
+     */
+    private class RollingFile {
+        private final String name;
+        private Writer out;
+        private long written;
+
+        RollingFile(String name) {
+            this.name = name;
+        }
+
+        void write(String line) {
+            try {
+                if (out == null || written >= config.getMaxFileSize()) {
+                    roll();
+                }
+                out.write(line);
+                out.write('\n');
+                written += line.length() + 1;
+            } catch (IOException e) {
+                logger.debug("Unable to write log of {}: {}", name, e.getMessage());
+            }
+        }
+
+        void flush() {
+            try {
+                if (out != null) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                logger.debug("Unable to flush log of {}: {}", name, e.getMessage());
+            }
+        }
+
+        void close() {
+            try {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+            } catch (IOException e) {
+                logger.debug("Unable to close log of {}: {}", name, e.getMessage());
+            }
+        }
+
+        private void roll() throws IOException {
+            close();
+            for (int i = config.getMaxFiles(); i >= 1; i--) {
+                Path previous = path(i - 1);
+                if (Files.exists(previous)) {
+                    Files.move(previous, path(i), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            // sync flush so that flushed content can be decompressed before the file is closed
+            out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(path(0)), 8192, true), StandardCharsets.UTF_8));
+            written = 0;
+        }
+
+        private Path path(int index) {
+            return directory.resolve(index == 0 ? name + ".log.gz" : name + "." + index + ".log.gz");
+        }
+    }
+}
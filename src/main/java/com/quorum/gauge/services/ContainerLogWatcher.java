@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Follows the logs of each container once and fans the lines out to all subscribers.
+ * <p>
+ * The log of a container is followed while there are subscribers and the most recent lines are kept so that
+ * late subscribers see lines logged before they subscribed. Older lines are read again from Docker when needed.
+ * If the container stops, its log is followed again once it's restarted. In case the start event is missed,
+ * it's also tried again after a delay which grows while the container stays stopped.
+ */
+public class ContainerLogWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ContainerLogWatcher.class);
+
+    private static final int MAX_BUFFERED_LINES = 10_000;
+    private static final Duration REOPEN_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_REOPEN_DELAY = Duration.ofMinutes(1);
+    // patterns with back references can't be combined as their group numbers would change
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(\\d|k<)");
+
+    private final DockerClient dockerClient;
+    private final Map<String, Tail> tails = new ConcurrentHashMap<>();
+
+    public ContainerLogWatcher(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * Lines may be emitted out of order when {@code since} is older than the lines kept in memory
+     *
+     * @return lines of the container logged at or after {@code since}, followed by new lines as they are logged
+     */
+    public Observable<LogLine> lines(String containerId, Instant since) {
+        return Observable.defer(() -> tails.computeIfAbsent(containerId, Tail::new).lines(since));
+    }
+
+    /**
+     * Find all {@code patterns} in the logs of a container.
+     * Lines are first matched against all patterns combined so most lines are only matched once.
+     *
+     * @param patterns regular expressions, each must be found in a single line
+     * @return each pattern, the first time it's found, completing when all are found or once {@code deadline} has passed
+     */
+    public Observable<String> watch(String containerId, List<String> patterns, Instant since, Duration deadline) {
+        if (patterns.isEmpty()) {
+            return Observable.empty();
+        }
+        Pattern any = anyOf(patterns);
+        return Observable.defer(() -> {
+            Map<String, Pattern> remaining = new LinkedHashMap<>();
+            patterns.forEach(p -> remaining.put(p, Pattern.compile(p)));
+            return lines(containerId, since)
+                .filter(line -> any.matcher(line.getText()).find())
+                .map(line -> {
+                    List<String> found = new ArrayList<>();
+                    remaining.entrySet().removeIf(e -> e.getValue().matcher(line.getText()).find() && found.add(e.getKey()));
+                    return found;
+                })
+                .takeUntil((List<String> found) -> remaining.isEmpty())
+                .flatMapIterable(found -> found);
+        })
+            .take(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Drop the lines kept for a container, e.g.: once it's removed
+     */
+    public void forget(String containerId) {
+        tails.remove(containerId);
+    }
+
+    static Pattern anyOf(List<String> patterns) {
+        if (patterns.size() == 1) {
+            return Pattern.compile(patterns.get(0));
+        }
+        if (patterns.stream().anyMatch(p -> BACK_REFERENCE.matcher(p).find())) {
+            // matches all lines, each pattern is then matched on its own
+            return Pattern.compile("");
+        }
+        return Pattern.compile(patterns.stream().map(p -> "(?:" + p + ")").collect(Collectors.joining("|")));
+    }
+
+    public static class LogLine {
+        private final Instant timestamp;
+        private final StreamType streamType;
+        private final String text;
+
+        public LogLine(Instant timestamp, StreamType streamType, String text) {
+            this.timestamp = timestamp;
+            this.streamType = streamType;
+            this.text = text;
+        }
+
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        public StreamType getStreamType() {
+            return streamType;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + " " + text;
+        }
+    }
+
+    private static class Listener {
+        final ObservableEmitter<LogLine> emitter;
+        final Instant since;
+
+        Listener(ObservableEmitter<LogLine> emitter, Instant since) {
+            this.emitter = emitter;
+            this.since = since;
+        }
+
+        void offer(LogLine line) {
+            if (!line.getTimestamp().isBefore(since)) {
+                emitter.onNext(line);
+            }
+        }
+    }
+
+    /**
+     * The followed log of a container, all methods changing its state hold its lock
+     */
+    private class Tail {
+        private final String containerId;
+        private final Deque<LogLine> buffer = new ArrayDeque<>();
+        // listeners are removed while lines are dispatched to them
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        private boolean truncated;
+        private Instant lastTimestamp = Instant.EPOCH;
+        private ResultCallback.Adapter<Frame> stream;
+        private Disposable reopen;
+        private Duration reopenDelay = REOPEN_DELAY;
+
+        Tail(String containerId) {
+            this.containerId = containerId;
+        }
+
+        Observable<LogLine> lines(Instant since) {
+            return Observable.create(source -> {
+                ObservableEmitter<LogLine> emitter = source.serialize();
+                Listener listener = new Listener(emitter, since);
+                emitter.setCancellable(() -> remove(listener));
+                Instant historyUntil = null;
+                synchronized (this) {
+                    LogLine oldest = buffer.peekFirst();
+                    if (truncated && oldest != null && since.isBefore(oldest.getTimestamp())) {
+                        historyUntil = oldest.getTimestamp();
+                    }
+                    buffer.forEach(listener::offer);
+                    if (!emitter.isDisposed()) {
+                        listeners.add(listener);
+                        if (stream == null && reopen == null) {
+                            open();
+                        }
+                    }
+                }
+                if (historyUntil != null && !emitter.isDisposed()) {
+                    readHistory(since, historyUntil, emitter);
+                }
+            });
+        }
+
+        private synchronized void remove(Listener listener) {
+            listeners.remove(listener);
+            if (!listeners.isEmpty()) {
+                return;
+            }
+            if (reopen != null) {
+                reopen.dispose();
+                reopen = null;
+            }
+            if (stream != null) {
+                ResultCallback.Adapter<Frame> closing = stream;
+                stream = null;
+                try {
+                    closing.close();
+                } catch (IOException e) {
+                    logger.debug("Unable to close log stream of {}: {}", containerId, e.getMessage());
+                }
+            }
+        }
+
+        private void open() {
+            Instant resumeAfter = lastTimestamp;
+            logger.debug("Following log of container {} since {}", containerId, resumeAfter);
+            stream = dockerClient.logContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withTimestamps(true)
+                .withFollowStream(true)
+                .withSince((int) resumeAfter.getEpochSecond())
+                .exec(new ResultCallback.Adapter<>() {
+                    @Override
+                    public void onNext(Frame frame) {
+                        onFrame(frame, resumeAfter);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        closed(this, throwable);
+                        super.onError(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        closed(this, null);
+                        super.onComplete();
+                    }
+                });
+        }
+
+        private synchronized void onFrame(Frame frame, Instant resumeAfter) {
+            for (LogLine line : parse(frame)) {
+                // lines in the same second as the last one are logged again when the log is followed again
+                if (resumeAfter != Instant.EPOCH && !line.getTimestamp().isAfter(resumeAfter)) {
+                    continue;
+                }
+                if (line.getTimestamp().isAfter(lastTimestamp)) {
+                    lastTimestamp = line.getTimestamp();
+                }
+                reopenDelay = REOPEN_DELAY;
+                buffer.addLast(line);
+                if (buffer.size() > MAX_BUFFERED_LINES) {
+                    buffer.removeFirst();
+                    truncated = true;
+                }
+                listeners.forEach(l -> l.offer(line));
+            }
+        }
+
+        private synchronized void closed(ResultCallback.Adapter<Frame> callback, Throwable error) {
+            if (stream != callback) {
+                // closed after the last listener was removed
+                return;
+            }
+            stream = null;
+            if (error instanceof NotFoundException) {
+                listeners.forEach(l -> l.emitter.onError(error));
+                listeners.clear();
+                return;
+            }
+            if (!listeners.isEmpty()) {
+                Duration delay = reopenDelay;
+                // nothing is logged while the container is stopped
+                reopenDelay = delay.multipliedBy(2).compareTo(MAX_REOPEN_DELAY) < 0 ? delay.multipliedBy(2) : MAX_REOPEN_DELAY;
+                logger.debug("Log stream of container {} ended, following it again once it's started or in {}", containerId, delay);
+                reopen = Observable.merge(started(), Observable.timer(delay.toMillis(), TimeUnit.MILLISECONDS))
+                    .take(1)
+                    .subscribeOn(Schedulers.io())
+                    .subscribe(trigger -> reopen(), e -> logger.debug("Unable to follow log of {} again: {}", containerId, e.getMessage()));
+            }
+        }
+
+        private synchronized void reopen() {
+            reopen = null;
+            if (stream == null && !listeners.isEmpty()) {
+                open();
+            }
+        }
+
+        private Observable<Event> started() {
+            return Observable.create(emitter -> {
+                ResultCallback.Adapter<Event> callback = dockerClient.eventsCmd()
+                    .withEventTypeFilter(EventType.CONTAINER)
+                    .withContainerFilter(containerId)
+                    .withEventFilter("start")
+                    .exec(new ResultCallback.Adapter<>() {
+                        @Override
+                        public void onNext(Event event) {
+                            emitter.onNext(event);
+                        }
+
+                        @Override
+                        public void onError(Throwable throwable) {
+                            // the delay still applies without events
+                            logger.debug("Docker events of {} stopped: {}", containerId, throwable.getMessage());
+                        }
+                    });
+                emitter.setCancellable(callback::close);
+            });
+        }
+
+        // lines no longer kept in memory
+        private void readHistory(Instant since, Instant until, ObservableEmitter<LogLine> emitter) throws InterruptedException {
+            dockerClient.logContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withTimestamps(true)
+                .withFollowStream(false)
+                .withSince((int) since.getEpochSecond())
+                .withUntil((int) until.getEpochSecond() + 1)
+                .exec(new ResultCallback.Adapter<Frame>() {
+                    @Override
+                    public void onNext(Frame frame) {
+                        parse(frame).stream()
+                            .filter(line -> !line.getTimestamp().isBefore(since) && line.getTimestamp().isBefore(until))
+                            .forEach(emitter::onNext);
+                    }
+                })
+                .awaitCompletion();
+        }
+
+        // with timestamps, each line starts with its RFC3339 timestamp followed by a space
+        private List<LogLine> parse(Frame frame) {
+            String payload = new String(Objects.requireNonNullElse(frame.getPayload(), new byte[0]), StandardCharsets.UTF_8);
+            if (payload.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<LogLine> lines = new ArrayList<>();
+            for (String raw : payload.split("\n")) {
+                if (raw.isEmpty()) {
+                    continue;
+                }
+                int space = raw.indexOf(' ');
+                Instant timestamp = lastTimestamp;
+                String text = raw;
+                if (space > 0) {
+                    try {
+                        timestamp = Instant.parse(raw.substring(0, space));
+                        text = raw.substring(space + 1);
+                    } catch (DateTimeParseException e) {
+                        // not a timestamp, keep the whole line
+                    }
+                }
+                lines.add(new LogLine(timestamp, frame.getStreamType(), text));
+            }
+            return lines;
+        }
+    }
+}
@@ -36,7 +36,6 @@ import org.web3j.abi.datatypes.generated.Bytes32;
 import org.web3j.abi.datatypes.generated.Uint32;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.Request;
-import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
@@ -65,6 +64,9 @@ public class ContractCodeReaderService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     public Observable<? extends Contract> createPrivateContract(QuorumNetworkProperty.Node source, String ethAccountAlias, String privateFromAlias, List<String> privateForAliases) {
         Quorum client = connectionFactory().getConnection(source);
 
@@ -100,8 +102,7 @@ public class ContractCodeReaderService extends AbstractService {
 
     private <T> Observable<T> execute(QuorumNetworkProperty.Node node, Function function, String contractAddress, Class<T> outputType) {
         Quorum client = connectionFactory().getConnection(node);
-        return client.ethCoinbase().flowable().toObservable()
-            .map(Response::getResult)
+        return nodeMetadataCache.coinbase(node)
             .flatMap(address -> {
                 Request<?, EthCall> req = client.ethCall(Transaction.createEthCallTransaction(address, contractAddress, FunctionEncoder.encode(function)), DefaultBlockParameterName.LATEST);
                 return req.flowable().toObservable();
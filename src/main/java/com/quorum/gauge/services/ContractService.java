@@ -23,7 +23,6 @@ package com.quorum.gauge.services;
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNetworkProperty.Node;
 import com.quorum.gauge.common.QuorumNode;
-import com.quorum.gauge.ext.EthChainId;
 import com.quorum.gauge.ext.EthSendTransactionAsync;
 import com.quorum.gauge.ext.EthStorageRoot;
 import com.quorum.gauge.ext.PrivateClientTransactionManager;
@@ -46,7 +45,6 @@ import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.Request;
-import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.*;
@@ -64,7 +62,9 @@ import java.math.BigInteger;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -84,6 +84,12 @@ public class ContractService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
+    @Autowired
+    ContractStateReader contractStateReader;
+
     public Observable<? extends Contract> createSimpleContract(int initialValue, Node source, Node target) {
         QuorumNode targetNode = null;
         if (target != null) {
@@ -195,8 +201,7 @@ public class ContractService extends AbstractService {
             Arrays.<Type>asList(),
             Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {
             }));
-        return client.ethCoinbase().flowable().toObservable()
-            .map(Response::getResult)
+        return nodeMetadataCache.coinbase(node)
             .flatMap(address -> {
                 Request<?, EthCall> req = client.ethCall(Transaction.createEthCallTransaction(address, contractAddress, FunctionEncoder.encode(function)), DefaultBlockParameterName.LATEST);
                 return req.flowable().toObservable();
@@ -228,7 +233,7 @@ public class ContractService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             return SimpleStorage.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
@@ -245,6 +250,30 @@ public class ContractService extends AbstractService {
         }
     }
 
+    /**
+     * Read the values of many simple storage contracts, using JSON RPC batches
+     *
+     * @param nodeByContractAddress node to read each contract from
+     * @return values keyed by contract address, 0 when a contract returns {@code 0x}
+     */
+    public Map<String, Integer> readSimpleContractValues(Map<String, QuorumNode> nodeByContractAddress) {
+        Function function = new Function(FUNC_GET,
+            Collections.emptyList(),
+            Collections.singletonList(new TypeReference<Uint256>() {
+            }));
+        List<ContractStateReader.Call> calls = nodeByContractAddress.entrySet().stream()
+            .map(e -> new ContractStateReader.Call(networkProperty().getNode(e.getValue().name()), e.getKey(), function))
+            .collect(Collectors.toList());
+        Map<String, Integer> values = new LinkedHashMap<>();
+        for (ContractStateReader.Result result : contractStateReader.read(calls).blockingFirst()) {
+            if (result.hasError()) {
+                throw new RuntimeException("Unable to read " + result.getCall().getContractAddress() + ": " + result.getError());
+            }
+            values.put(result.getCall().getContractAddress(), result.getValues().isEmpty() ? 0 : ((BigInteger) result.getValues().get(0).getValue()).intValue());
+        }
+        return values;
+    }
+
     public Observable<TransactionReceipt> updateSimpleContractWithMandatoryRecipients(final QuorumNode source, List<QuorumNode> target,
                                                                final String contractAddress, final int newValue, PrivacyFlag flags, List<QuorumNode> mandatoryFor) {
         return this.updateSimpleContractWithGasLimit(source, target, contractAddress, DEFAULT_GAS_LIMIT, newValue, flags, mandatoryFor);
@@ -359,7 +388,7 @@ public class ContractService extends AbstractService {
     }
 
     public Observable<? extends Contract> createClientReceiptSmartContract(Node node) {
-        long chainId = rpcService.call(node, "eth_chainId", Collections.emptyList(), EthChainId.class).blockingFirst().getChainId();
+        long chainId = nodeMetadataCache.chainId(node).blockingFirst();
 
         Web3j client = connectionFactory().getWeb3jConnection(node);
         return accountService.getDefaultAccountAddress(node)
@@ -377,7 +406,7 @@ public class ContractService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
 
             switch (contractName.toLowerCase().trim()) {
@@ -580,7 +609,7 @@ public class ContractService extends AbstractService {
     }
 
     public Observable<TransactionReceipt> updateClientReceipt(Node node, String contractAddress, BigInteger value) {
-        long chainId = rpcService.call(node, "eth_chainId", Collections.emptyList(), EthChainId.class).blockingFirst().getChainId();
+        long chainId = nodeMetadataCache.chainId(node).blockingFirst();
         Web3j client = connectionFactory().getWeb3jConnection(node);
         return accountService.getDefaultAccountAddress(node)
             .flatMap(address -> {
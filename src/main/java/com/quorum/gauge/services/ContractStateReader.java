@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.ContextScheduler;
+import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import com.quorum.gauge.ext.BatchRequest;
+import com.quorum.gauge.ext.BatchResponse;
+import com.quorum.gauge.ext.ObjectResponse;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read the state of many contracts using {@code eth_call}, in as few round-trips as possible.
+ * <p>
+ * Calls are grouped by node: the {@code from} address (coinbase) is taken from {@link NodeMetadataCache} and the calls are sent
+ * in JSON RPC batches of {@link QuorumNetworkProperty.RpcProperty#getBatchSize()}, with at most
+ * {@link QuorumNetworkProperty.RpcProperty#getBatchConcurrency()} batches in flight per node.
+ * Results of each batch are decoded in the thread that received it.
+ */
+@Service
+public class ContractStateReader extends AbstractService {
+    private static final Logger logger = LoggerFactory.getLogger(ContractStateReader.class);
+
+    @Autowired
+    RPCService rpcService;
+
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
+    /**
+     * @return results in the same order as {@code calls}
+     */
+    public Observable<List<Result>> read(List<Call> calls) {
+        Map<Node, List<Integer>> indexesByNode = new LinkedHashMap<>();
+        for (int i = 0; i < calls.size(); i++) {
+            indexesByNode.computeIfAbsent(calls.get(i).node, n -> new ArrayList<>()).add(i);
+        }
+        QuorumNetworkProperty.RpcProperty rpc = networkProperty().getRpc();
+        // batches are sent from other threads so they need the caller's context
+        Scheduler scheduler = ContextScheduler.with(Context.capture());
+        Result[] results = new Result[calls.size()];
+        return Observable.fromIterable(indexesByNode.entrySet())
+            .flatMap(e -> Observable.defer(() -> nodeMetadataCache.coinbase(e.getKey()))
+                .subscribeOn(scheduler)
+                .flatMap(from -> Observable.fromIterable(partition(e.getValue(), rpc.getBatchSize()))
+                    .flatMap(indexes -> Observable.defer(() -> readBatch(e.getKey(), from, calls, indexes))
+                        .subscribeOn(scheduler), Math.max(1, rpc.getBatchConcurrency()))))
+            .doOnNext(batchResults -> batchResults.forEach((i, r) -> results[i] = r))
+            .ignoreElements()
+            .andThen(Observable.fromCallable(() -> Arrays.asList(results)));
+    }
+
+    // results keyed by index in calls
+    private Observable<Map<Integer, Result>> readBatch(Node node, String from, List<Call> calls, List<Integer> indexes) {
+        BatchRequest.Collector collector = BatchRequest.Collector.create();
+        for (Integer i : indexes) {
+            Call call = calls.get(i);
+            collector.add("eth_call", Arrays.asList(
+                Transaction.createEthCallTransaction(from, call.contractAddress, FunctionEncoder.encode(call.function)),
+                DefaultBlockParameterName.LATEST.getValue()));
+        }
+        // request ids are unique, map them back to the position of their call
+        Map<Long, Integer> indexById = new HashMap<>();
+        for (int j = 0; j < indexes.size(); j++) {
+            indexById.put(collector.toList().get(j).getId(), indexes.get(j));
+        }
+        return rpcService.call(node, collector).map(batchResponse -> decode(calls, indexById, batchResponse));
+    }
+
+    private static Map<Integer, Result> decode(List<Call> calls, Map<Long, Integer> indexById, BatchResponse batchResponse) {
+        Map<Integer, Result> results = new HashMap<>();
+        for (ObjectResponse response : batchResponse.getResponses()) {
+            Integer i = indexById.get(response.getId());
+            if (i == null) {
+                logger.debug("Ignoring response with unknown id {}", response.getId());
+                continue;
+            }
+            Call call = calls.get(i);
+            if (response.hasError()) {
+                results.put(i, new Result(call, Collections.emptyList(), response.getError().getMessage()));
+            } else {
+                results.put(i, new Result(call, FunctionReturnDecoder.decode((String) response.getResult(), call.function.getOutputParameters()), null));
+            }
+        }
+        for (Integer i : indexById.values()) {
+            results.putIfAbsent(i, new Result(calls.get(i), Collections.emptyList(), "no response"));
+        }
+        return results;
+    }
+
+    private static List<List<Integer>> partition(List<Integer> indexes, int size) {
+        List<List<Integer>> partitions = new ArrayList<>();
+        for (int from = 0; from < indexes.size(); from += Math.max(1, size)) {
+            partitions.add(indexes.subList(from, Math.min(indexes.size(), from + Math.max(1, size))));
+        }
+        return partitions;
+    }
+
+    /**
+     * A read-only call to {@code function} of the contract at {@code contractAddress} in {@code node}
+     */
+    public static class Call {
+        private final Node node;
+        private final String contractAddress;
+        private final Function function;
+
+        public Call(Node node, String contractAddress, Function function) {
+            this.node = node;
+            this.contractAddress = contractAddress;
+            this.function = function;
+        }
+
+        public Node getNode() {
+            return node;
+        }
+
+        public String getContractAddress() {
+            return contractAddress;
+        }
+
+        public Function getFunction() {
+            return function;
+        }
+    }
+
+    public static class Result {
+        private final Call call;
+        private final List<Type> values;
+        private final String error;
+
+        Result(Call call, List<Type> values, String error) {
+            this.call = call;
+            this.values = values;
+            this.error = error;
+        }
+
+        public Call getCall() {
+            return call;
+        }
+
+        /**
+         * @return decoded output parameters, empty if the call failed or the contract returned {@code 0x}
+         */
+        public List<Type> getValues() {
+            return values;
+        }
+
+        public boolean hasError() {
+            return error != null;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
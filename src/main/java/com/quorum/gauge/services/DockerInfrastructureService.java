@@ -24,6 +24,7 @@ import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.HealthState;
 import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.WaitContainerResultCallback;
 import com.github.dockerjava.api.exception.NotModifiedException;
 import com.github.dockerjava.api.model.*;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
@@ -34,6 +35,7 @@ import com.google.common.collect.ImmutableMap;
 import com.quorum.gauge.common.GethArgBuilder;
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNetworkProperty.DockerInfrastructureProperty.DockerContainerProperty;
+import com.quorum.gauge.common.RetryPolicy;
 import io.reactivex.Observable;
 import io.reactivex.schedulers.Schedulers;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
@@ -45,14 +47,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.FileSystemUtils;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -65,10 +74,27 @@ public class DockerInfrastructureService
     implements InfrastructureService, InitializingBean, DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(DockerInfrastructureService.class);
 
+    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(90);
+    private static final Duration STATE_POLLING_FALLBACK = Duration.ofSeconds(15);
+    private static final List<String> SNAPSHOT_DATADIRS = Arrays.asList("/data/qdata", "/data/tm");
+
     private Map<String, QuorumImageConfig> quorumDockerImageCatalog = new HashMap<>();
     private Map<String, String> tesseraDockerImageCatalog = new HashMap<>();
     private QuorumNetworkProperty.DockerInfrastructureProperty infraProperty;
     private DockerClient dockerClient;
+    private ContainerLogWatcher logWatcher;
+    // snapshot name -> directory with the archives of each node
+    private final Map<String, Path> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
+    @Autowired
+    NonceManager nonceManager;
+
+    // optional and resolved lazily as it depends on this service
+    @Autowired
+    ObjectProvider<ContainerLogCollector> logCollector;
 
     @Override
     public void afterPropertiesSet() throws Exception {
@@ -83,6 +109,7 @@ public class DockerInfrastructureService
             .sslConfig(config.getSSLConfig())
             .build();
         dockerClient = DockerClientImpl.getInstance(config, httpClient);
+        logWatcher = new ContainerLogWatcher(dockerClient);
         quorumDockerImageCatalog = ImmutableMap.<String, QuorumImageConfig>builder()
             .put("develop", new QuorumImageConfig(Optional.ofNullable(infraProperty.getTargetQuorumImage()).orElse("quorumengineering/quorum:develop"), GethArgBuilder.newBuilder().allowInsecureUnlock(true)))
             .put("latest", new QuorumImageConfig("quorumengineering/quorum:latest", GethArgBuilder.newBuilder().allowInsecureUnlock(true)))
@@ -112,17 +139,63 @@ public class DockerInfrastructureService
     @Override
     public Observable<Boolean> startNode(NodeAttributes attributes, ResourceCreationCallback callback) {
         DockerContainerProperty p = infraProperty.getNodes().get(attributes.getNode());
-        String quorumImage = "";
-        if (quorumDockerImageCatalog.containsKey(attributes.getQuorumVersionKey())) {
-            QuorumImageConfig quorumImageConfig = quorumDockerImageCatalog.get(attributes.getQuorumVersionKey());
-            attributes.withAdditionalGethArgs(attributes.getAdditionalGethArgsBuilder().overrideWith(quorumImageConfig.getArgBuilder()));
-            quorumImage = quorumImageConfig.getImage();
-        }
+        String quorumImage = quorumImage(attributes);
         String tesseraImage = tesseraDockerImageCatalog.getOrDefault(attributes.getTesseraVersionKey(), "");
         return Observable.zip(
             startContainerFromTemplate(p.getQuorumContainerId(), attributes, quorumImage, callback).subscribeOn(Schedulers.io()),
             startContainerFromTemplate(p.getTesseraContainerId(), attributes, tesseraImage, callback).subscribeOn(Schedulers.io()),
-            (q, t) -> q && t);
+            (q, t) -> q && t)
+            .doOnNext(started -> invalidateNode(networkProperty().getNode(attributes.getNode())));
+    }
+
+    /**
+     * Same as {@link #startNode(NodeAttributes, ResourceCreationCallback)} for all nodes at once,
+     * except that the Quorum container of a node is only created once its Tessera container is healthy
+     */
+    @Override
+    public Observable<NodeStartTimeline> startNetwork(List<NodeAttributes> nodes, NetworkResources networkResources) {
+        long startNanos = System.nanoTime();
+        return Observable.fromIterable(nodes)
+            .flatMap(attributes -> startNodeInOrder(attributes, networkResources, new NodeStartTimeline(attributes.getNode(), startNanos))
+                .subscribeOn(Schedulers.io()))
+            .doOnNext(timeline -> logger.debug("Start timeline of {}", timeline));
+    }
+
+    private Observable<NodeStartTimeline> startNodeInOrder(NodeAttributes attributes, NetworkResources networkResources, NodeStartTimeline timeline) {
+        DockerContainerProperty p = infraProperty.getNodes().get(attributes.getNode());
+        String quorumImage = quorumImage(attributes);
+        String tesseraImage = tesseraDockerImageCatalog.getOrDefault(attributes.getTesseraVersionKey(), "");
+        ResourceCreationCallback callback = resourceId -> networkResources.add(attributes.getNode(), resourceId);
+        Observable<Boolean> tessera = StringUtils.isBlank(p.getTesseraContainerId())
+            ? Observable.just(true)
+            : createContainerFromTemplate(p.getTesseraContainerId(), attributes, tesseraImage, callback)
+                .doOnNext(id -> timeline.mark("tessera created"))
+                .flatMap(this::wait)
+                .doOnNext(ready -> timeline.mark(ready ? "tessera ready" : "tessera not ready"));
+        return tessera
+            .flatMap(tesseraReady -> !tesseraReady ? Observable.just(false)
+                : createContainerFromTemplate(p.getQuorumContainerId(), attributes, quorumImage, callback)
+                    .doOnNext(id -> timeline.mark("quorum created"))
+                    .flatMap(this::wait))
+            .onErrorReturn(e -> {
+                logger.error("Unable to start node {}", attributes.getNode(), e);
+                return false;
+            })
+            .doOnNext(started -> invalidateNode(networkProperty().getNode(attributes.getNode())))
+            .map(started -> {
+                timeline.markStarted(started);
+                return timeline;
+            });
+    }
+
+    // additional geth args of the image are added to the attributes
+    private String quorumImage(NodeAttributes attributes) {
+        if (!quorumDockerImageCatalog.containsKey(attributes.getQuorumVersionKey())) {
+            return "";
+        }
+        QuorumImageConfig quorumImageConfig = quorumDockerImageCatalog.get(attributes.getQuorumVersionKey());
+        attributes.withAdditionalGethArgs(attributes.getAdditionalGethArgsBuilder().overrideWith(quorumImageConfig.getArgBuilder()));
+        return quorumImageConfig.getImage();
     }
 
     @Override
@@ -136,6 +209,7 @@ public class DockerInfrastructureService
                     logger.debug("container {} already stopped", id);
                 }
                 dockerClient.removeContainerCmd(id).exec();
+                logWatcher.forget(id);
                 return true;
             });
     }
@@ -319,6 +393,7 @@ public class DockerInfrastructureService
             .doOnNext(id -> logger.debug("Starting container {}", StringUtils.substring(id, 0, 12)))
             .map(id -> {
                 dockerClient.startContainerCmd(id).exec();
+                invalidateMetadata(id);
                 return true;
             });
     }
@@ -329,70 +404,242 @@ public class DockerInfrastructureService
             .doOnNext(id -> logger.debug("Restarting container {}", StringUtils.substring(id, 0, 12)))
             .map(id -> {
                 dockerClient.restartContainerCmd(id).exec();
+                invalidateMetadata(id);
                 return true;
             });
     }
 
+    // containers started from templates are not in the config so the state of all nodes is invalidated
+    private void invalidateMetadata(String containerId) {
+        infraProperty.getNodes().entrySet().stream()
+            .filter(e -> containerId.equals(e.getValue().getQuorumContainerId()) || containerId.equals(e.getValue().getTesseraContainerId()))
+            .findFirst()
+            .map(e -> networkProperty().getNode(e.getKey()))
+            .ifPresentOrElse(this::invalidateNode, () -> {
+                nodeMetadataCache.invalidateAll();
+                nonceManager.invalidateAll();
+            });
+    }
+
+    // cached metadata and nonces may not match a (re)started node, e.g.: when its datadir was replaced,
+    // and its WebSocket connections have been closed
+    private void invalidateNode(QuorumNetworkProperty.Node node) {
+        nodeMetadataCache.invalidate(node);
+        nonceManager.invalidate(node);
+        connectionFactory().evict(node);
+    }
+
     /**
-     * Wait for container to be in "healthy" status
-     * Timeout is 3 * 30 seconds
+     * Wait for container to be in "healthy" status, driven by Docker events.
+     * Timeout is 90 seconds
      *
      * @param resourceId containder Id
      * @return true if container is in "healthy" status
      */
     @Override
     public Observable<Boolean> wait(String resourceId) {
-        return Observable.just(resourceId)
-            .map(id -> {
-                for (int i = 1; i <= 30; i++) {
-                    BasicContainerState state = new BasicContainerState(dockerClient.inspectContainerCmd(id).exec());
-                    logger.debug("Waiting attempt {} for container {}({}), status = {}, health = {}", i, state.getContainerName(), StringUtils.substring(state.getContainerId(), 0, 12), state.getStatus(), state.getHealthStatus());
-                    if (state.isDead()) {
-                        return false;
-                    } else if (!state.isOnGoing()) {
-                        return true;
-                    } else {
-                        Thread.sleep(3000);
-                    }
-                }
-                return false;
-            });
+        return stateChanges(resourceId)
+            .doOnNext(state -> logger.debug("Waiting for container {}({}), status = {}, health = {}", state.getContainerName(), StringUtils.substring(state.getContainerId(), 0, 12), state.getStatus(), state.getHealthStatus()))
+            .filter(state -> state.isDead() || !state.isOnGoing())
+            .map(state -> !state.isDead())
+            .take(1)
+            .timeout(WAIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, Observable.just(false));
     }
 
-    @Override
-    public Observable<Boolean> grepLog(String resourceId, String grepStr, long timeoutAmount, TimeUnit timeoutUnit) {
-        Pattern regex = Pattern.compile(grepStr);
-        return Observable.just(resourceId)
-            .map(id -> dockerClient.logContainerCmd(id)
-                .withStdOut(true)
-                .withStdErr(true)
-                .withFollowStream(true)
-                .exec(new ResultCallback.Adapter<>() {
-                    // TODO this should probably be replaced with some Observable wrapper that tracks an externally defined flag
-                    // I think onComplete is automatically called when the container is shut down
-                    // which causes awaitCompletion to return true - which in turn causes a false positive
-                    // pattern match result
-                    boolean patternFound = false;
+    /**
+     * Current state of a container followed by its changes.
+     * <p>
+     * The container is inspected again on each {@code start}, {@code die} and {@code health_status} event and,
+     * in case events are missed, every {@link #STATE_POLLING_FALLBACK}.
+     */
+    public Observable<BasicContainerState> stateChanges(String containerId) {
+        // events are subscribed to before the first inspection so no change is missed in between
+        return Observable.merge(
+            containerEvents(containerId),
+            Observable.interval(0, STATE_POLLING_FALLBACK.toMillis(), TimeUnit.MILLISECONDS))
+            .concatMap(trigger -> Observable.fromCallable(() -> new BasicContainerState(dockerClient.inspectContainerCmd(containerId).exec()))
+                .subscribeOn(Schedulers.io()))
+            .distinctUntilChanged((a, b) -> StringUtils.equals(a.getStatus(), b.getStatus()) && StringUtils.equals(a.getHealthStatus(), b.getHealthStatus()));
+    }
 
+    private Observable<Event> containerEvents(String containerId) {
+        return Observable.create(emitter -> {
+            ResultCallback.Adapter<Event> callback = dockerClient.eventsCmd()
+                .withEventTypeFilter(EventType.CONTAINER)
+                .withContainerFilter(containerId)
+                .exec(new ResultCallback.Adapter<>() {
                     @Override
-                    public void onNext(Frame object) {
-                        if (regex.matcher(object.toString()).find()) {
-                            patternFound = true;
-                            onComplete();
+                    public void onNext(Event event) {
+                        // health status events have actions like "health_status: healthy"
+                        String action = StringUtils.defaultString(event.getAction());
+                        if (action.startsWith("health_status") || action.equals("die") || action.equals("start")) {
+                            emitter.onNext(event);
                         }
                     }
 
                     @Override
-                    public boolean awaitCompletion(long timeout, TimeUnit timeUnit) throws InterruptedException {
-                        // mix complete success with whether the pattern was found
-                        return super.awaitCompletion(timeout, timeUnit) && patternFound;
+                    public void onError(Throwable throwable) {
+                        // inspecting periodically still works without events
+                        logger.debug("Docker events of {} stopped: {}", StringUtils.substring(containerId, 0, 12), throwable.getMessage());
                     }
+                });
+            emitter.setCancellable(callback::close);
+        });
+    }
+
+    @Override
+    public Observable<Boolean> grepLog(String resourceId, String grepStr, long timeoutAmount, TimeUnit timeoutUnit) {
+        return grepLog(resourceId, Collections.singletonList(grepStr), Instant.EPOCH, Duration.ofMillis(timeoutUnit.toMillis(timeoutAmount)))
+            .isEmpty()
+            .map(notFound -> !notFound)
+            .toObservable();
+    }
+
+    @Override
+    public Observable<String> grepLog(String resourceId, List<String> patterns, Instant since, Duration deadline) {
+        return logWatcher.watch(resourceId, patterns, since, deadline);
+    }
+
+    /**
+     * @return the shared followers of container logs
+     */
+    public ContainerLogWatcher logWatcher() {
+        return logWatcher;
+    }
+
+    /**
+     * Datadirs are archived from the Quorum container of each node as it shares its {@code /data} volume with Tessera.
+     * Archives are kept in a temporary directory until this service is destroyed.
+     */
+    @Override
+    public Observable<Boolean> snapshot(String name, NetworkResources networkResources) {
+        return Observable.fromCallable(() -> Files.createTempDirectory("snapshot-" + name + "-"))
+            .flatMap(dir -> Observable.fromIterable(networkResources.getNodeNames())
+                .flatMap(node -> Observable.fromCallable(() -> snapshotNode(node, networkResources.getResourceId(node), dir.resolve(node)))
+                    .subscribeOn(Schedulers.io()))
+                .reduce(true, (a, b) -> a && b)
+                .doOnSuccess(ok -> {
+                    Path previous = snapshots.put(name, dir);
+                    if (previous != null) {
+                        FileSystemUtils.deleteRecursively(previous.toFile());
+                    }
+                    logger.info("Snapshot {} of {} taken in {}", name, networkResources.getNodeNames(), dir);
                 })
-                .awaitCompletion(timeoutAmount, timeoutUnit)
-            );
+                .doOnError(e -> FileSystemUtils.deleteRecursively(dir.toFile()))
+                .toObservable());
+    }
+
+    /**
+     * The datadirs are deleted by a short-lived container sharing the volumes of the stopped Quorum container,
+     * then the archives are copied back in.
+     */
+    @Override
+    public Observable<Boolean> restore(String name, NetworkResources networkResources) {
+        Path dir = Optional.ofNullable(snapshots.get(name)).orElseThrow(() -> new IllegalArgumentException("no such snapshot: " + name));
+        return Observable.fromIterable(networkResources.getNodeNames())
+            .flatMap(node -> Observable.fromCallable(() -> restoreNode(node, networkResources.getResourceId(node), dir.resolve(node)))
+                .subscribeOn(Schedulers.io()))
+            .reduce(true, (a, b) -> a && b)
+            .doOnSuccess(ok -> logger.info("Snapshot {} restored in {}", name, networkResources.getNodeNames()))
+            .toObservable();
+    }
+
+    private boolean snapshotNode(String node, List<String> containerIds, Path dir) throws IOException {
+        String quorumContainerId = quorumContainerId(node, containerIds);
+        Files.createDirectories(dir);
+        stopContainers(containerIds);
+        try {
+            for (String datadir : SNAPSHOT_DATADIRS) {
+                try (InputStream in = dockerClient.copyArchiveFromContainerCmd(quorumContainerId, datadir).exec()) {
+                    Files.copy(in, dir.resolve(new File(datadir).getName() + ".tar"));
+                }
+            }
+        } finally {
+            startContainers(containerIds);
+        }
+        logger.debug("Datadirs of {} archived in {}", node, dir);
+        return true;
+    }
+
+    private boolean restoreNode(String node, List<String> containerIds, Path dir) throws IOException, InterruptedException {
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("no snapshot of node " + node);
+        }
+        String quorumContainerId = quorumContainerId(node, containerIds);
+        String image = dockerClient.inspectContainerCmd(quorumContainerId).exec().getConfig().getImage();
+        stopContainers(containerIds);
+        String cleanerId = dockerClient.createContainerCmd(image)
+            .withEntrypoint("sh", "-c", "rm -rf " + String.join(" ", SNAPSHOT_DATADIRS))
+            .withHostConfig(HostConfig.newHostConfig().withVolumesFrom(new VolumesFrom(quorumContainerId)))
+            .exec()
+            .getId();
+        try {
+            dockerClient.startContainerCmd(cleanerId).exec();
+            dockerClient.waitContainerCmd(cleanerId).exec(new WaitContainerResultCallback()).awaitStatusCode();
+            for (String datadir : SNAPSHOT_DATADIRS) {
+                try (InputStream in = Files.newInputStream(dir.resolve(new File(datadir).getName() + ".tar"))) {
+                    dockerClient.copyArchiveToContainerCmd(cleanerId)
+                        .withTarInputStream(in)
+                        .withRemotePath(new File(datadir).getParent())
+                        .exec();
+                }
+            }
+        } finally {
+            dockerClient.removeContainerCmd(cleanerId).withForce(true).exec();
+        }
+        startContainers(containerIds);
+        containerIds.forEach(this::invalidateMetadata);
+        logger.debug("Datadirs of {} restored from {}", node, dir);
+        return true;
+    }
+
+    private String quorumContainerId(String node, List<String> containerIds) {
+        return containerIds.stream()
+            .filter(id -> isGeth(id).blockingFirst())
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("no Quorum container for node " + node));
+    }
+
+    private void stopContainers(List<String> containerIds) {
+        for (String id : containerIds) {
+            try {
+                dockerClient.stopContainerCmd(id).exec();
+            } catch (NotModifiedException e) {
+                logger.debug("container {} already stopped", id);
+            }
+        }
+    }
+
+    // Quorum containers wait for Tessera so the order doesn't matter
+    private void startContainers(List<String> containerIds) {
+        for (String id : containerIds) {
+            try {
+                dockerClient.startContainerCmd(id).exec();
+            } catch (NotModifiedException e) {
+                logger.debug("container {} already started", id);
+            }
+        }
     }
 
     private Observable<Boolean> startContainerFromTemplate(String templateContainerId, NodeAttributes attr, String image, ResourceCreationCallback callback) {
+        return cloneAndStart(templateContainerId, attr, image, callback)
+            .map(id -> this.wait(id).blockingFirst())
+            .retryWhen(RetryPolicy.exponential(Duration.ofSeconds(1), Duration.ofSeconds(10))
+                .withMaxAttempts(6)
+                .named("start container"));
+    }
+
+    /**
+     * @return id of the started container, without waiting for it to be healthy
+     */
+    private Observable<String> createContainerFromTemplate(String templateContainerId, NodeAttributes attr, String image, ResourceCreationCallback callback) {
+        return cloneAndStart(templateContainerId, attr, image, callback)
+            .retryWhen(RetryPolicy.exponential(Duration.ofSeconds(1), Duration.ofSeconds(10))
+                .withMaxAttempts(6)
+                .named("start container"));
+    }
+
+    private Observable<String> cloneAndStart(String templateContainerId, NodeAttributes attr, String image, ResourceCreationCallback callback) {
         return Observable.just(templateContainerId)
             .map(id -> {
                 InspectContainerResponse res = dockerClient.inspectContainerCmd(id).exec();
@@ -442,17 +689,16 @@ public class DockerInfrastructureService
                 logger.debug("Created container {}", StringUtils.substring(newContainerId, 0, 12));
                 dockerClient.startContainerCmd(newContainerId).exec();
                 callback.onCreate(newContainerId);
+                logCollector.ifAvailable(c -> c.follow(newContainerId));
                 logger.debug("Started container {}", StringUtils.substring(newContainerId, 0, 12));
                 return newContainerId;
-            })
-            .map(id -> this.wait(id).blockingFirst())
-            .retry(5);
+            });
     }
 
     public Observable<BasicContainerState> getState(String containerId) {
         return Observable.just(containerId)
             .map(id -> dockerClient.inspectContainerCmd(id).exec())
-            .map(s -> new BasicContainerState(containerId, s.getName(), s.getState().getStatus(), s.getState().getHealth().getStatus()));
+            .map(s -> new BasicContainerState(containerId, s.getName(), s.getState().getStatus(), Optional.ofNullable(s.getState().getHealth()).map(HealthState::getStatus).orElse(null)));
     }
 
     public Observable<Info> info() {
@@ -484,6 +730,7 @@ public class DockerInfrastructureService
 
     @Override
     public void destroy() throws Exception {
+        snapshots.values().forEach(dir -> FileSystemUtils.deleteRecursively(dir.toFile()));
         dockerClient.close();
     }
 
@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
 
@@ -100,7 +101,7 @@ public class GraphQLService extends AbstractService {
                 Response response = call.execute();
                 if (response.isSuccessful()) {
                     InputStream responseBody = response.body().byteStream();
-                    subscriber.onSuccess(new ObjectMapper().readTree(responseBody));
+                    subscriber.onSuccess(parseResponse(responseBody));
                 } else {
                     String error = response.body().string();
                     subscriber.onError(new Exception(error));
@@ -110,4 +111,8 @@ public class GraphQLService extends AbstractService {
             }
         });
     }
+
+    static JsonNode parseResponse(InputStream responseBody) throws IOException {
+        return new ObjectMapper().readTree(responseBody);
+    }
 }
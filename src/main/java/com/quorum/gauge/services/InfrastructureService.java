@@ -26,8 +26,13 @@ import com.quorum.gauge.common.GethArgBuilder;
 import io.reactivex.Observable;
 import org.springframework.util.CollectionUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
@@ -43,6 +48,15 @@ public interface InfrastructureService {
 
     Observable<Boolean> startNode(NodeAttributes attributes, ResourceCreationCallback callback);
 
+    /**
+     * Start all {@code nodes} concurrently. Tessera containers are started first and the Quorum container
+     * of each node is started as soon as its Tessera is healthy, so the network is up once the slowest node is.
+     * Created resources are added to {@code networkResources}.
+     *
+     * @return the start timeline of each node, emitted when the node is ready or has failed to start
+     */
+    Observable<NodeStartTimeline> startNetwork(List<NodeAttributes> nodes, NetworkResources networkResources);
+
     Observable<Boolean> deleteResources(List<String> resourceIds);
 
     Observable<Boolean> deleteNetwork(NetworkResources networkResources);
@@ -75,8 +89,33 @@ public interface InfrastructureService {
 
     Observable<Boolean> wait(String resourceId);
 
+    /**
+     * @return true if {@code grepStr} is found in the log of the resource within the timeout
+     */
     Observable<Boolean> grepLog(String resourceId, String grepStr, long timeoutAmount, TimeUnit timeoutUnit);
 
+    /**
+     * Logs of the same resource are followed once however many patterns are being searched for
+     *
+     * @param patterns regular expressions, each to be found in a line logged at or after {@code since}
+     * @return each pattern the first time it's found, completing when all are found or once {@code deadline} has passed
+     */
+    Observable<String> grepLog(String resourceId, List<String> patterns, Instant since, Duration deadline);
+
+    /**
+     * Capture the datadirs of all nodes in {@code networkResources} as the chain state {@code name}.
+     * Nodes are stopped while being captured and started again afterwards.
+     */
+    Observable<Boolean> snapshot(String name, NetworkResources networkResources);
+
+    /**
+     * Replace the datadirs of all nodes in {@code networkResources}, in parallel, with the chain state {@code name}
+     * captured by {@link #snapshot(String, NetworkResources)} from nodes with the same names.
+     * Nodes are started again afterwards, use {@link #wait(String)} for them to be ready.
+     * Nodes started with {@link NodeAttributes#withFreshStart()} discard the restored datadirs.
+     */
+    Observable<Boolean> restore(String name, NetworkResources networkResources);
+
     interface ResourceCreationCallback {
         void onCreate(String resourceId);
     }
@@ -131,6 +170,51 @@ public interface InfrastructureService {
 
         public GethArgBuilder getAdditionalGethArgsBuilder() { return additionalGethArgsBuilder; }
     }
+
+    /**
+     * When each step of starting a node happened, relative to the start of the whole network
+     */
+    class NodeStartTimeline {
+        private final String node;
+        private final long startNanos;
+        private final Map<String, Duration> events = Collections.synchronizedMap(new LinkedHashMap<>());
+        private volatile boolean started;
+
+        public NodeStartTimeline(String node, long startNanos) {
+            this.node = node;
+            this.startNanos = startNanos;
+        }
+
+        public void mark(String event) {
+            events.put(event, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+
+        public void markStarted(boolean started) {
+            this.started = started;
+            mark(started ? "ready" : "failed");
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public Map<String, Duration> getEvents() {
+            synchronized (events) {
+                return new LinkedHashMap<>(events);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return node + ": " + getEvents().entrySet().stream()
+                .map(e -> String.format("%s +%.1fs", e.getKey(), e.getValue().toMillis() / 1000.0))
+                .collect(Collectors.joining(", "));
+        }
+    }
     class NetworkResources extends ConcurrentHashMap<String, Vector<String>> {
         public synchronized void add(String nodeName, String resourceId) {
             Vector<String> resources = super.get(nodeName);
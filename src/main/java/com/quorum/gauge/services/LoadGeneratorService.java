@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.ContextScheduler;
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import com.quorum.gauge.common.SolBinUtils;
+import com.quorum.gauge.sol.SimpleStorage;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-loop load generator: transactions are submitted at a constant rate regardless of how fast
+ * the node responds, so a slow node shows up as higher latencies instead of a lower sending rate.
+ * <p>
+ * Latencies are measured from the time a transaction was scheduled to be sent, which also
+ * accounts for the time it waited because too many transactions were in flight.
+ */
+@Service
+public class LoadGeneratorService extends AbstractService {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGeneratorService.class);
+
+    @Autowired
+    TransactionService transactionService;
+
+    @Autowired
+    TransactionReceiptResolver receiptResolver;
+
+    @Autowired
+    AccountService accountService;
+
+    private volatile String simpleStorageBinary;
+
+    public LoadReport run(LoadProfile profile) {
+        Node node = profile.node;
+        String fromAddress = accountService.getDefaultAccountAddress(node).blockingFirst();
+        String binary = simpleStorageBinary();
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / profile.tps;
+        long total = profile.tps * profile.duration.getSeconds();
+        LoadReport report = new LoadReport();
+        // transactions are sent from other threads so they need the caller's context,
+        // ticks are emitted in a timer thread which doesn't have it
+        Scheduler scheduler = ContextScheduler.with(Context.capture());
+        logger.info("Generating {} transactions at {} tx/s from {}, {}% private", total, profile.tps, node.getName(), Math.round(profile.privateRatio * 100));
+        long start = System.nanoTime();
+        Observable.intervalRange(0, total, 0, periodNanos, TimeUnit.NANOSECONDS)
+            .flatMap(i -> Observable.defer(() -> {
+                long scheduledAt = start + i * periodNanos;
+                List<String> privateFor = profile.isPrivate(i) ? profile.privateFor : Collections.emptyList();
+                report.sent.incrementAndGet();
+                return transactionService.sendSimpleStorageContract(node, fromAddress, binary, (int) (i % 50) + 1, privateFor)
+                    .flatMap(r -> accepted(report, node, scheduledAt, r));
+            }).onErrorResumeNext(e -> {
+                logger.debug("Transaction {} failed: {}", i, e.getMessage());
+                report.failed.incrementAndGet();
+                return Observable.empty();
+            }).subscribeOn(scheduler), profile.maxInFlight)
+            .ignoreElements()
+            .blockingAwait();
+        report.elapsed = Duration.ofNanos(System.nanoTime() - start);
+        logger.info("Load generated from {}: {}", node.getName(), report);
+        return report;
+    }
+
+    private Observable<Object> accepted(LoadReport report, Node node, long scheduledAt, EthSendTransaction response) {
+        if (response.hasError()) {
+            logger.debug("Transaction rejected: {}", response.getError().getMessage());
+            report.failed.incrementAndGet();
+            return Observable.empty();
+        }
+        report.acceptedLatency.recordValue(elapsedMicros(scheduledAt));
+        report.accepted.incrementAndGet();
+        return receiptResolver.awaitReceipt(node, response.getTransactionHash())
+            .map(receipt -> {
+                report.minedLatency.recordValue(elapsedMicros(scheduledAt));
+                if (receipt.isStatusOK()) {
+                    report.mined.incrementAndGet();
+                } else {
+                    report.failed.incrementAndGet();
+                }
+                return receipt;
+            });
+    }
+
+    private static long elapsedMicros(long fromNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - fromNanos);
+    }
+
+    private String simpleStorageBinary() {
+        if (simpleStorageBinary == null) {
+            simpleStorageBinary = SolBinUtils.readSolBin("com.quorum.gauge.sol", SimpleStorage.class);
+        }
+        return simpleStorageBinary;
+    }
+
+    public static class LoadProfile {
+        private final Node node;
+        private final int tps;
+        private final Duration duration;
+        private List<String> privateFor = Collections.emptyList();
+        private double privateRatio;
+        private int maxInFlight = 10_000;
+
+        private LoadProfile(Node node, int tps, Duration duration) {
+            if (tps <= 0) {
+                throw new IllegalArgumentException("tps must be positive");
+            }
+            this.node = node;
+            this.tps = tps;
+            this.duration = duration;
+        }
+
+        /**
+         * Public transactions only, unless {@link #withPrivateFor(List, int)} is used
+         */
+        public static LoadProfile of(Node node, int tps, Duration duration) {
+            return new LoadProfile(node, tps, duration);
+        }
+
+        /**
+         * @param privateFor privacy ids of the recipients of private transactions
+         * @param privatePercentage how many transactions in every 100 are private
+         */
+        public LoadProfile withPrivateFor(List<String> privateFor, int privatePercentage) {
+            if (privatePercentage < 0 || privatePercentage > 100) {
+                throw new IllegalArgumentException("private percentage must be between 0 and 100");
+            }
+            this.privateFor = privateFor;
+            this.privateRatio = privatePercentage / 100.0;
+            return this;
+        }
+
+        /**
+         * Limit the number of transactions waiting to be accepted or mined.
+         * When reached, sending is delayed and the delay is included in the latencies.
+         */
+        public LoadProfile withMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        // spread private transactions evenly instead of randomly so that runs are repeatable
+        boolean isPrivate(long i) {
+            return Math.floor((i + 1) * privateRatio) > Math.floor(i * privateRatio);
+        }
+    }
+
+    /**
+     * Latencies are recorded in microseconds
+     */
+    public static class LoadReport {
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong mined = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final Histogram acceptedLatency = new ConcurrentHistogram(3);
+        private final Histogram minedLatency = new ConcurrentHistogram(3);
+        private Duration elapsed = Duration.ZERO;
+
+        public long getSent() {
+            return sent.get();
+        }
+
+        public long getAccepted() {
+            return accepted.get();
+        }
+
+        public long getMined() {
+            return mined.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        public Histogram getAcceptedLatency() {
+            return acceptedLatency;
+        }
+
+        public Histogram getMinedLatency() {
+            return minedLatency;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        public double getThroughput() {
+            return elapsed.isZero() ? 0 : mined.get() * 1000.0 / elapsed.toMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sent=%d, accepted=%d, mined=%d, failed=%d, elapsed=%ds, throughput=%.1f tx/s, "
+                    + "accepted latency p50=%dms p99=%dms max=%dms, mined latency p50=%dms p99=%dms max=%dms",
+                getSent(), getAccepted(), getMined(), getFailed(), elapsed.getSeconds(), getThroughput(),
+                acceptedLatency.getValueAtPercentile(50) / 1000, acceptedLatency.getValueAtPercentile(99) / 1000, acceptedLatency.getMaxValue() / 1000,
+                minedLatency.getValueAtPercentile(50) / 1000, minedLatency.getValueAtPercentile(99) / 1000, minedLatency.getMaxValue() / 1000);
+        }
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.ContractUtils;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.Sign;
+import org.web3j.crypto.SignedRawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fake Quorum node serving the subset of JSON RPC used by the services, including batch requests,
+ * so that the overhead of the harness itself can be measured without a network.
+ * <p>
+ * Transactions are mined into a new block every {@link QuorumNetworkProperty.MockNodeProperty#getBlockPeriod()}
+ * and always succeed. Contracts don't run: {@code eth_call} returns the last 32-byte word of the input of the latest
+ * transaction to the contract, which is enough for {@code SimpleStorage}. Private transactions are replaced by
+ * a random hash whose payload is returned by {@code eth_getQuorumPayload}, hashes of payloads stored in
+ * {@link MockTesseraServer}, e.g.: of raw private transactions, are resolved from there.
+ * <p>
+ * Point node URLs to {@link #getUrl()}, e.g.: by setting {@code quorum.mock-node.port}.
+ */
+@Service
+@ConditionalOnProperty(prefix = "quorum", name = "mock-node.enabled", havingValue = "true")
+public class MockQuorumNodeServer implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MockQuorumNodeServer.class);
+
+    private static final String COINBASE = "0xed9d02e382b34818e88b88a309c7fe71e65f419d";
+    private static final String PRIVACY_PRECOMPILE_ADDRESS = "0x000000000000000000000000000000000000007a";
+    private static final String ZERO_WORD = "0x" + StringUtils.repeat("0", 64);
+    private static final String EMPTY_BLOOM = "0x" + StringUtils.repeat("0", 512);
+
+    @Autowired
+    QuorumNetworkProperty networkProperty;
+
+    @Autowired(required = false)
+    MockTesseraServer tessera;
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    private final JsonNodeFactory json = JsonNodeFactory.instance;
+    private final SecureRandom random = new SecureRandom();
+    private QuorumNetworkProperty.MockNodeProperty config;
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ScheduledExecutorService miner;
+
+    // all below are guarded by this
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<Tx> pending = new ArrayList<>();
+    private final Map<String, Tx> transactions = new HashMap<>();
+    private final Map<String, Long> nextNonces = new HashMap<>();
+    private final Map<String, Long> minedNonces = new HashMap<>();
+    private final Map<String, String> storage = new HashMap<>();
+    private final Map<String, String> payloads = new HashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        config = networkProperty.getMockNode();
+        blocks.add(new Block(0, ZERO_WORD, new ArrayList<>()));
+        requestExecutor = Executors.newCachedThreadPool(daemon("MockQuorumNode-"));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getPort()), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(requestExecutor);
+        server.start();
+        miner = Executors.newSingleThreadScheduledExecutor(daemon("MockQuorumNodeMiner-"));
+        long periodMillis = config.getBlockPeriod().toMillis();
+        miner.scheduleAtFixedRate(this::mine, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        logger.info("Mock Quorum node started on {} with block period {}", getUrl(), config.getBlockPeriod());
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (miner != null) {
+            miner.shutdownNow();
+        }
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+        }
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public synchronized long getBlockNumber() {
+        return blocks.size() - 1;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] response;
+        try (InputStream in = exchange.getRequestBody()) {
+            JsonNode request = objectMapper.readTree(in);
+            JsonNode result;
+            if (request.isArray()) {
+                ArrayNode results = json.arrayNode();
+                request.forEach(r -> results.add(call(r)));
+                result = results;
+            } else {
+                result = call(request);
+            }
+            response = objectMapper.writeValueAsBytes(result);
+        } catch (IOException e) {
+            response = objectMapper.writeValueAsBytes(error(null, -32700, "parse error: " + e.getMessage()));
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private ObjectNode call(JsonNode request) {
+        JsonNode id = request.get("id");
+        String method = request.path("method").asText();
+        JsonNode params = request.path("params");
+        try {
+            ObjectNode response = json.objectNode();
+            response.put("jsonrpc", "2.0");
+            response.set("id", id);
+            response.set("result", dispatch(method, params));
+            return response;
+        } catch (RpcException e) {
+            return error(id, e.code, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.debug("Unable to serve {}", method, e);
+            return error(id, -32603, e.getMessage());
+        }
+    }
+
+    private JsonNode dispatch(String method, JsonNode params) {
+        switch (method) {
+            case "eth_blockNumber":
+                return quantity(getBlockNumber());
+            case "eth_chainId":
+                return quantity(config.getChainId());
+            case "net_version":
+                return json.textNode(String.valueOf(config.getChainId()));
+            case "net_peerCount":
+                return quantity(0);
+            case "eth_coinbase":
+                return json.textNode(COINBASE);
+            case "eth_accounts":
+                return json.arrayNode().add(COINBASE);
+            case "eth_gasPrice":
+                return quantity(0);
+            case "eth_getPrivacyPrecompileAddress":
+                return json.textNode(PRIVACY_PRECOMPILE_ADDRESS);
+            case "rpc_modules":
+                ObjectNode modules = json.objectNode();
+                for (String module : new String[]{"eth", "net", "rpc", "raft", "istanbul"}) {
+                    modules.put(module, "1.0");
+                }
+                return modules;
+            case "eth_sendTransaction":
+                return json.textNode(sendTransaction(params.get(0)));
+            case "eth_sendRawTransaction":
+            case "eth_sendRawPrivateTransaction":
+                return json.textNode(sendRawTransaction(params.get(0).asText()));
+            case "eth_getTransactionCount":
+                return quantity(transactionCount(params.get(0).asText(), params.path(1).asText("latest")));
+            case "eth_getTransactionReceipt":
+            case "eth_getPrivateTransactionReceipt":
+                return receipt(params.get(0).asText());
+            case "eth_getTransactionByHash":
+            case "eth_getPrivateTransactionByHash":
+                return transaction(params.get(0).asText());
+            case "eth_getBlockByNumber":
+                return block(params.get(0).asText(), params.path(1).asBoolean(false));
+            case "eth_call":
+                return json.textNode(ethCall(params.get(0).path("to").asText()));
+            case "eth_getQuorumPayload":
+                return json.textNode(payload(params.get(0).asText()));
+            case "raft_role":
+                return json.textNode("minter");
+            case "raft_leader":
+                return json.textNode(StringUtils.repeat("0", 128));
+            case "raft_cluster":
+                return json.arrayNode();
+            case "raft_addPeer":
+            case "raft_addLearner":
+                return quantity(2);
+            case "raft_removePeer":
+            case "raft_promoteToPeer":
+                return json.booleanNode(true);
+            case "istanbul_getValidators":
+                return json.arrayNode().add(COINBASE);
+            case "istanbul_nodeAddress":
+                return json.textNode(COINBASE);
+            case "istanbul_candidates":
+                return json.objectNode();
+            case "istanbul_propose":
+            case "istanbul_discard":
+                return json.nullNode();
+            default:
+                throw new RpcException(-32601, "the method " + method + " does not exist/is not available");
+        }
+    }
+
+    private synchronized String sendTransaction(JsonNode args) {
+        String from = args.path("from").asText(COINBASE).toLowerCase();
+        String to = args.hasNonNull("to") ? args.get("to").asText().toLowerCase() : null;
+        String data = args.path("data").asText(args.path("input").asText("0x"));
+        long nonce = args.hasNonNull("nonce") ? Numeric.decodeQuantity(args.get("nonce").asText()).longValueExact() : nextNonces.getOrDefault(from, 0L);
+        String input = data;
+        if (args.hasNonNull("privateFor")) {
+            input = storePayload(data);
+        }
+        // real nodes hash the signed transaction, a counter keeps these unique
+        String hash = Hash.sha3(Numeric.toHexString((from + nonce + input + transactions.size()).getBytes()));
+        return submit(new Tx(hash, from, to, input, data, nonce));
+    }
+
+    private synchronized String sendRawTransaction(String signed) {
+        RawTransaction rawTransaction = TransactionDecoder.decode(signed);
+        String from = COINBASE;
+        if (rawTransaction instanceof SignedRawTransaction) {
+            try {
+                from = sender((SignedRawTransaction) rawTransaction).toLowerCase();
+            } catch (SignatureException e) {
+                logger.debug("Unable to recover sender: {}", e.getMessage());
+            }
+        }
+        String to = StringUtils.isEmpty(Numeric.cleanHexPrefix(rawTransaction.getTo())) ? null : rawTransaction.getTo().toLowerCase();
+        String data = rawTransaction.getData() == null ? "0x" : Numeric.prependHexPrefix(rawTransaction.getData());
+        // for private transactions the data is the hash of the payload in the privacy manager
+        String payload = payload(data);
+        if ("0x".equals(payload)) {
+            payload = data;
+        }
+        return submit(new Tx(Hash.sha3(signed), from, to, data, payload, rawTransaction.getNonce().longValueExact()));
+    }
+
+    // private transactions use v = 37 or 38, i.e.: 27 or 28 plus 10, which web3j reads as EIP-155 with chain id 1
+    // and then recovers a wrong address from
+    private static String sender(SignedRawTransaction rawTransaction) throws SignatureException {
+        Sign.SignatureData signature = rawTransaction.getSignatureData();
+        byte v = signature.getV()[0];
+        if (v != 37 && v != 38) {
+            return rawTransaction.getFrom();
+        }
+        Sign.SignatureData publicSignature = new Sign.SignatureData((byte) (v - 10), signature.getR(), signature.getS());
+        BigInteger key = Sign.signedMessageToKey(TransactionEncoder.encode(rawTransaction), publicSignature);
+        return Numeric.prependHexPrefix(Keys.getAddress(key));
+    }
+
+    private String submit(Tx tx) {
+        if (transactions.containsKey(tx.hash)) {
+            throw new RpcException(-32000, "already known");
+        }
+        if (tx.nonce < minedNonces.getOrDefault(tx.from, 0L)) {
+            throw new RpcException(-32000, "nonce too low");
+        }
+        transactions.put(tx.hash, tx);
+        pending.add(tx);
+        nextNonces.merge(tx.from, tx.nonce + 1, Math::max);
+        return tx.hash;
+    }
+
+    private synchronized String storePayload(String data) {
+        byte[] key = new byte[64];
+        random.nextBytes(key);
+        String hash = Numeric.toHexString(key);
+        payloads.put(hash, data);
+        return hash;
+    }
+
+    private synchronized void mine() {
+        if (pending.isEmpty() && !config.isMineEmptyBlocks()) {
+            return;
+        }
+        Block parent = blocks.get(blocks.size() - 1);
+        Block block = new Block(parent.number + 1, parent.hash, new ArrayList<>(pending));
+        pending.clear();
+        for (int i = 0; i < block.transactions.size(); i++) {
+            Tx tx = block.transactions.get(i);
+            tx.block = block;
+            tx.index = i;
+            minedNonces.merge(tx.from, tx.nonce + 1, Math::max);
+            String target = tx.to;
+            if (target == null) {
+                tx.contractAddress = contractAddress(tx.from, tx.nonce);
+                target = tx.contractAddress;
+            }
+            String payload = Numeric.cleanHexPrefix(tx.payload);
+            if (payload.length() >= 64) {
+                storage.put(target, "0x" + payload.substring(payload.length() - 64));
+            }
+        }
+        blocks.add(block);
+    }
+
+    private synchronized long transactionCount(String address, String blockParameter) {
+        Map<String, Long> nonces = "pending".equals(blockParameter) ? nextNonces : minedNonces;
+        return nonces.getOrDefault(address.toLowerCase(), 0L);
+    }
+
+    private synchronized JsonNode receipt(String hash) {
+        Tx tx = transactions.get(hash.toLowerCase());
+        if (tx == null || tx.block == null) {
+            return json.nullNode();
+        }
+        ObjectNode receipt = json.objectNode();
+        receipt.put("transactionHash", tx.hash);
+        receipt.set("transactionIndex", quantity(tx.index));
+        receipt.put("blockHash", tx.block.hash);
+        receipt.set("blockNumber", quantity(tx.block.number));
+        receipt.put("from", tx.from);
+        receipt.put("to", tx.to);
+        receipt.put("contractAddress", tx.contractAddress);
+        receipt.set("cumulativeGasUsed", quantity(21000L * (tx.index + 1)));
+        receipt.set("gasUsed", quantity(21000));
+        receipt.set("logs", json.arrayNode());
+        receipt.put("logsBloom", EMPTY_BLOOM);
+        receipt.put("status", "0x1");
+        return receipt;
+    }
+
+    private synchronized JsonNode transaction(String hash) {
+        Tx tx = transactions.get(hash.toLowerCase());
+        return tx == null ? json.nullNode() : toJson(tx);
+    }
+
+    private ObjectNode toJson(Tx tx) {
+        ObjectNode node = json.objectNode();
+        node.put("hash", tx.hash);
+        node.set("nonce", quantity(tx.nonce));
+        node.put("blockHash", tx.block == null ? null : tx.block.hash);
+        node.set("blockNumber", tx.block == null ? json.nullNode() : quantity(tx.block.number));
+        node.set("transactionIndex", tx.block == null ? json.nullNode() : quantity(tx.index));
+        node.put("from", tx.from);
+        node.put("to", tx.to);
+        node.set("value", quantity(0));
+        node.set("gasPrice", quantity(0));
+        node.set("gas", quantity(4700000));
+        node.put("input", tx.input);
+        node.put("v", "0x25");
+        node.put("r", ZERO_WORD);
+        node.put("s", ZERO_WORD);
+        return node;
+    }
+
+    private synchronized JsonNode block(String blockParameter, boolean fullTransactions) {
+        long number;
+        switch (blockParameter) {
+            case "latest":
+            case "pending":
+                number = blocks.size() - 1;
+                break;
+            case "earliest":
+                number = 0;
+                break;
+            default:
+                number = Numeric.decodeQuantity(blockParameter).longValueExact();
+        }
+        if (number < 0 || number >= blocks.size()) {
+            return json.nullNode();
+        }
+        Block block = blocks.get((int) number);
+        ObjectNode node = json.objectNode();
+        node.set("number", quantity(block.number));
+        node.put("hash", block.hash);
+        node.put("parentHash", block.parentHash);
+        node.put("nonce", "0x0000000000000000");
+        node.put("sha3Uncles", ZERO_WORD);
+        node.put("logsBloom", EMPTY_BLOOM);
+        node.put("transactionsRoot", ZERO_WORD);
+        node.put("stateRoot", ZERO_WORD);
+        node.put("receiptsRoot", ZERO_WORD);
+        node.put("mixHash", ZERO_WORD);
+        node.put("miner", COINBASE);
+        node.set("difficulty", quantity(1));
+        node.set("totalDifficulty", quantity(block.number + 1));
+        node.put("extraData", "0x");
+        node.set("size", quantity(0));
+        node.set("gasLimit", quantity(Long.MAX_VALUE));
+        node.set("gasUsed", quantity(21000L * block.transactions.size()));
+        node.set("timestamp", quantity(block.timestamp));
+        ArrayNode txs = json.arrayNode();
+        block.transactions.forEach(tx -> {
+            if (fullTransactions) {
+                txs.add(toJson(tx));
+            } else {
+                txs.add(tx.hash);
+            }
+        });
+        node.set("transactions", txs);
+        node.set("uncles", json.arrayNode());
+        return node;
+    }
+
+    private synchronized String ethCall(String to) {
+        return storage.getOrDefault(to.toLowerCase(), ZERO_WORD);
+    }
+
+    private synchronized String payload(String hash) {
+        String payload = payloads.get(hash);
+        if (payload == null && tessera != null) {
+            payload = tessera.getPayload(Base64.getEncoder().encodeToString(Numeric.hexStringToByteArray(hash)))
+                .map(Numeric::toHexString)
+                .orElse(null);
+        }
+        return payload == null ? "0x" : payload;
+    }
+
+    private static String contractAddress(String from, long nonce) {
+        return ContractUtils.generateContractAddress(from, BigInteger.valueOf(nonce)).toLowerCase();
+    }
+
+    private JsonNode quantity(long value) {
+        return json.textNode(Numeric.encodeQuantity(BigInteger.valueOf(value)));
+    }
+
+    private ObjectNode error(JsonNode id, int code, String message) {
+        ObjectNode response = json.objectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id);
+        ObjectNode error = response.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        return response;
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class RpcException extends RuntimeException {
+        final int code;
+
+        RpcException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    private static class Block {
+        final long number;
+        final String hash;
+        final String parentHash;
+        final long timestamp = System.currentTimeMillis() / 1000;
+        final List<Tx> transactions;
+
+        Block(long number, String parentHash, List<Tx> transactions) {
+            this.number = number;
+            this.parentHash = parentHash;
+            this.transactions = transactions;
+            this.hash = Hash.sha3(Numeric.toHexString((parentHash + number + System.nanoTime()).getBytes()));
+        }
+    }
+
+    private static class Tx {
+        final String hash;
+        final String from;
+        final String to;
+        // as sent to the chain, the hash of the payload for private transactions
+        final String input;
+        final String payload;
+        final long nonce;
+        // set once mined
+        Block block;
+        int index;
+        String contractAddress;
+
+        Tx(String hash, String from, String to, String input, String payload, long nonce) {
+            this.hash = hash.toLowerCase();
+            this.from = from;
+            this.to = to;
+            this.input = input;
+            this.payload = payload;
+            this.nonce = nonce;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fake Tessera serving the third party and Q2T endpoints used by the services and the nodes:
+ * {@code /storeraw}, {@code /send}, {@code /receive}, {@code /transaction/<key>}, {@code /partyinfo} and {@code /upcheck}.
+ * <p>
+ * Payloads are kept in memory unencrypted. The keys it owns are the privacy addresses and aliases of all
+ * configured nodes, so the same ids resolved by {@link PrivacyService} work as {@code from} and {@code to}.
+ * Each request is delayed by the configured latency, plus a per KiB latency for payloads, to mimic a remote enclave.
+ * <p>
+ * Point the third party URLs of the nodes to {@link #getUrl()}, e.g.: by setting {@code quorum.mock-tessera.port}.
+ * When {@link MockQuorumNodeServer} is enabled too, it resolves private payloads from here.
+ */
+@Service
+@ConditionalOnProperty(prefix = "quorum", name = "mock-tessera.enabled", havingValue = "true")
+public class MockTesseraServer implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MockTesseraServer.class);
+
+    @Autowired
+    QuorumNetworkProperty networkProperty;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, StoredPayload> payloads = new ConcurrentHashMap<>();
+    private final AtomicLong counter = new AtomicLong();
+    private QuorumNetworkProperty.MockTesseraProperty config;
+    // owner (node/alias) keyed by public key
+    private Map<String, String> keys;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        config = networkProperty.getMockTessera();
+        keys = new LinkedHashMap<>();
+        networkProperty.getNodes().forEach((name, node) -> {
+            if (StringUtils.isNotEmpty(node.getPrivacyAddress())) {
+                keys.putIfAbsent(node.getPrivacyAddress(), name);
+            }
+            node.getPrivacyAddressAliases().forEach((alias, key) -> keys.putIfAbsent(key, name + "/" + alias));
+        });
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "MockTessera-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getPort()), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Mock Tessera started on {} with {} keys and latency {}", getUrl(), keys.size(), config.getLatency());
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * @param key base64 encoded hash returned by {@code /storeraw} or {@code /send}
+     */
+    public Optional<byte[]> getPayload(String key) {
+        return Optional.ofNullable(payloads.get(key)).map(p -> p.payload);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        try {
+            if ("GET".equals(method) && "/upcheck".equals(path)) {
+                respond(exchange, 200, "text/plain", "I'm up!");
+            } else if ("POST".equals(method) && "/storeraw".equals(path)) {
+                JsonNode request = readJson(exchange);
+                respondJson(exchange, keyResponse(store(request.path("payload").asText(), request.path("from").asText(null), Collections.emptyList())));
+            } else if ("POST".equals(method) && "/send".equals(path)) {
+                JsonNode request = readJson(exchange);
+                List<String> to = new ArrayList<>();
+                request.path("to").forEach(n -> to.add(n.asText()));
+                respondJson(exchange, keyResponse(store(request.path("payload").asText(), request.path("from").asText(null), to)));
+            } else if ("POST".equals(method) && "/receive".equals(path)) {
+                JsonNode request = readJson(exchange);
+                respondJson(exchange, receive(request.path("key").asText(), request.path("to").asText(null)));
+            } else if ("GET".equals(method) && path.startsWith("/transaction/")) {
+                // already percent-decoded, unlike URLDecoder it keeps '+' of base64 keys
+                String key = path.substring("/transaction/".length());
+                respondJson(exchange, receive(key, queryParameter(exchange, "to")));
+            } else if ("GET".equals(method) && "/partyinfo/keys".equals(path)) {
+                respondJson(exchange, partyInfo(false));
+            } else if ("GET".equals(method) && "/partyinfo".equals(path)) {
+                respondJson(exchange, partyInfo(true));
+            } else {
+                respond(exchange, 404, "text/plain", "not found: " + method + " " + path);
+            }
+        } catch (TesseraException e) {
+            respond(exchange, e.status, "text/plain", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.debug("Unable to serve {} {}", method, path, e);
+            respond(exchange, 500, "text/plain", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private String store(String base64Payload, String from, List<String> to) {
+        byte[] payload = Base64.getDecoder().decode(base64Payload);
+        if (payload.length > config.getMaxPayloadSize()) {
+            throw new TesseraException(413, "payload of " + payload.length + " bytes exceeds " + config.getMaxPayloadSize());
+        }
+        String sender = StringUtils.defaultIfEmpty(from, keys.isEmpty() ? "" : keys.keySet().iterator().next());
+        checkKnown(sender);
+        to.forEach(this::checkKnown);
+        simulateLatency(payload.length);
+        String key = Base64.getEncoder().encodeToString(hash(payload));
+        payloads.put(key, new StoredPayload(payload, sender, to));
+        logger.debug("Stored {} bytes from {} for {} as {}", payload.length, keys.get(sender), to, key);
+        return key;
+    }
+
+    private ObjectNode receive(String key, String to) {
+        StoredPayload stored = payloads.get(key);
+        // payloads from /storeraw get their recipients later, when the node sends them, so anyone can read them
+        boolean isParty = stored != null && (to == null || stored.recipients.isEmpty() || to.equals(stored.sender) || stored.recipients.contains(to));
+        if (!isParty) {
+            throw new TesseraException(404, "Message with hash " + key + " was not found");
+        }
+        simulateLatency(stored.payload.length);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("payload", Base64.getEncoder().encodeToString(stored.payload));
+        return response;
+    }
+
+    private ObjectNode partyInfo(boolean withUrls) {
+        simulateLatency(0);
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode keysNode = response.putArray("keys");
+        keys.keySet().forEach(k -> {
+            ObjectNode key = keysNode.addObject().put("key", k);
+            if (withUrls) {
+                key.put("url", getUrl());
+            }
+        });
+        if (withUrls) {
+            response.put("url", getUrl());
+            response.putArray("peers");
+        }
+        return response;
+    }
+
+    private void checkKnown(String key) {
+        if (!keys.isEmpty() && !keys.containsKey(key)) {
+            throw new TesseraException(404, "Recipient not found for key: " + key);
+        }
+    }
+
+    private void simulateLatency(int payloadSize) {
+        long millis = config.getLatency().toMillis() + config.getLatencyPerKb().toMillis() * payloadSize / 1024;
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // like Tessera, a 64-byte hash, unique for every request even when payloads are the same
+    private byte[] hash(byte[] payload) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-512");
+            digest.update(payload);
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(counter.incrementAndGet()).array());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ObjectNode keyResponse(String key) {
+        return objectMapper.createObjectNode().put("key", key);
+    }
+
+    private JsonNode readJson(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            String[] kv = pair.split("=", 2);
+            if (kv.length == 2 && name.equals(kv[0])) {
+                return URLDecoder.decode(kv[1], StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void respondJson(HttpExchange exchange, JsonNode body) throws IOException {
+        respond(exchange, 200, "application/json", objectMapper.writeValueAsString(body));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static class TesseraException extends RuntimeException {
+        final int status;
+
+        TesseraException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static class StoredPayload {
+        final byte[] payload;
+        final String sender;
+        final List<String> recipients;
+
+        StoredPayload(byte[] payload, String sender, List<String> recipients) {
+            this.payload = payload;
+            this.sender = sender;
+            this.recipients = recipients;
+        }
+    }
+}
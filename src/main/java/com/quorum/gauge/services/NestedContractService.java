@@ -54,6 +54,9 @@ public class NestedContractService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     public Observable<? extends Contract> createC1Contract(int initialValue, QuorumNode source, QuorumNode target) {
         return createC1Contract(initialValue, source, Arrays.asList(target), PrivacyFlag.STANDARD_PRIVATE);
     }
@@ -154,7 +157,7 @@ public class NestedContractService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             return C1.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
@@ -176,7 +179,7 @@ public class NestedContractService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             return C2.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
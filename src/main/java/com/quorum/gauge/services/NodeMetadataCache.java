@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import com.quorum.gauge.common.QuorumNode;
+import com.quorum.gauge.ext.EthChainId;
+import com.quorum.gauge.ext.NodeInfo;
+import com.quorum.gauge.ext.StringResponse;
+import io.reactivex.Observable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthCoinbase;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values of a node that don't change while it's running: coinbase, chain id, node info
+ * and privacy precompile address. Accounts are not cached as they can be added to a running node.
+ * <p>
+ * Each value is fetched once per node, private state and access token, failures are not cached.
+ * {@link InfrastructureService} implementations invalidate the values of nodes they start or restart.
+ */
+@Service
+public class NodeMetadataCache extends AbstractService {
+    private static final Logger logger = LoggerFactory.getLogger(NodeMetadataCache.class);
+
+    private final Map<String, Observable<?>> entries = new ConcurrentHashMap<>();
+
+    public Observable<String> coinbase(QuorumNode node) {
+        return coinbase(networkProperty().getNode(node.name()));
+    }
+
+    public Observable<String> coinbase(Node node) {
+        return get(node, "coinbase", () -> connectionFactory().getWeb3jConnection(node).ethCoinbase().flowable().toObservable()
+            .map(r -> result(node, "eth_coinbase", r, EthCoinbase::getAddress)));
+    }
+
+    public Observable<Long> chainId(Node node) {
+        return get(node, "chainId", () -> request(node, "eth_chainId", EthChainId.class)
+            .map(r -> result(node, "eth_chainId", r, EthChainId::getChainId)));
+    }
+
+    public Observable<NodeInfo> nodeInfo(Node node) {
+        return get(node, "nodeInfo", () -> request(node, "admin_nodeInfo", NodeInfo.class)
+            .map(r -> result(node, "admin_nodeInfo", r, info -> info)));
+    }
+
+    public Observable<String> privacyPrecompileAddress(Node node) {
+        return get(node, "privacyPrecompileAddress", () -> request(node, "eth_getPrivacyPrecompileAddress", StringResponse.class)
+            .map(r -> result(node, "eth_getPrivacyPrecompileAddress", r, StringResponse::getResult)));
+    }
+
+    /**
+     * Forget all values of {@code node}, for all private states and access tokens
+     */
+    public void invalidate(Node node) {
+        String prefix = node.getUrl() + "#";
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+        logger.debug("Invalidated metadata of {}", node.getName());
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        logger.debug("Invalidated metadata of all nodes");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Observable<T> get(Node node, String name, Callable<Observable<T>> loader) {
+        String key = node.getUrl() + "#" + Context.retrievePSI() + "#" + Context.retrieveAccessToken() + "#" + name;
+        return (Observable<T>) entries.computeIfAbsent(key, k -> Observable.defer(loader)
+            .doOnError(e -> entries.remove(k))
+            .cache());
+    }
+
+    private <T extends Response<?>> Observable<T> request(Node node, String method, Class<T> responseClass) {
+        return new Request<>(method, Collections.<String>emptyList(), connectionFactory().getWeb3jService(node), responseClass)
+            .flowable().toObservable();
+    }
+
+    private static <R extends Response<?>, T> T result(Node node, String method, R response, io.reactivex.functions.Function<R, T> value) throws Exception {
+        if (response.hasError()) {
+            throw new RuntimeException(method + " failed in " + node.getName() + ": " + response.getError().getMessage());
+        }
+        return value.apply(response);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out nonces locally so signed transactions can be submitted without
+ * asking the node for the transaction count every time.
+ * <p>
+ * Nonces are tracked per node and account. They are seeded once from the pending transaction count
+ * and resynced when the node rejects a transaction, e.g. "nonce too low" or "known transaction".
+ * A rejected nonce is only handed out again if no later one has been handed out meanwhile,
+ * as those may still be in flight.
+ * They must be invalidated when the chain of a node is reset, otherwise transactions are queued
+ * by the node with a future nonce and never mined.
+ */
+@Service
+public class NonceManager extends AbstractService {
+    private static final Logger logger = LoggerFactory.getLogger(NonceManager.class);
+
+    private static final int MAX_NONCE_RETRIES = 3;
+
+    private final Map<String, AccountNonce> nonces = new ConcurrentHashMap<>();
+
+    public BigInteger next(Node node, String address) {
+        return reserve(node, address, 1);
+    }
+
+    /**
+     * Reserve consecutive nonces
+     *
+     * @return the first nonce of the reserved range
+     */
+    public BigInteger reserve(Node node, String address, int count) {
+        return accountNonce(node, address).reserve(count);
+    }
+
+    /**
+     * Forget the local nonce so the next one is read again from the node
+     */
+    public void resync(Node node, String address) {
+        accountNonce(node, address).reset();
+    }
+
+    /**
+     * Resync after some nonces of a range returned by {@link #reserve(Node, String, int)} were not used.
+     * This only happens if the range is the latest one handed out, otherwise the unused nonces are left as a gap.
+     *
+     * @return whether the nonce will be read again from the node
+     */
+    public boolean resync(Node node, String address, BigInteger first, int count) {
+        boolean reset = accountNonce(node, address).resetIfLatest(first, count);
+        logger.debug("Nonces {} to {} of {} on {} may not have been used, {}", first, first.add(BigInteger.valueOf(count - 1)), address, node.getName(),
+            reset ? "resyncing" : "later nonces were handed out meanwhile");
+        return reset;
+    }
+
+    /**
+     * Forget the nonces of all accounts of {@code node}, e.g.: when its chain is reset
+     */
+    public void invalidate(Node node) {
+        String prefix = node.getUrl() + "#";
+        nonces.keySet().removeIf(k -> k.startsWith(prefix));
+        logger.debug("Invalidated nonces of {}", node.getName());
+    }
+
+    public void invalidateAll() {
+        nonces.clear();
+        logger.debug("Invalidated nonces of all nodes");
+    }
+
+    /**
+     * Send a transaction using the next nonce of the account.
+     * If the transaction is rejected, the nonce is resynced as it has not been consumed.
+     * Rejections due to a stale nonce are retried with a fresh one.
+     *
+     * @param sender sends the transaction with the given nonce
+     */
+    public <T extends Response<?>> Observable<T> sendWithNonce(Node node, String address, Function<BigInteger, Observable<T>> sender) {
+        return sendWithNonce(node, address, sender, 0);
+    }
+
+    private <T extends Response<?>> Observable<T> sendWithNonce(Node node, String address, Function<BigInteger, Observable<T>> sender, int attempt) {
+        return Observable.defer(() -> {
+            BigInteger nonce = next(node, address);
+            return sender.apply(nonce)
+                .doOnError(e -> resync(node, address, nonce, 1))
+                .flatMap(r -> {
+                    if (!r.hasError()) {
+                        return Observable.just(r);
+                    }
+                    if (isNonceTooLow(r.getError())) {
+                        // the local nonce is behind the node
+                        resync(node, address);
+                    } else {
+                        resync(node, address, nonce, 1);
+                    }
+                    if (isNonceError(r.getError()) && attempt < MAX_NONCE_RETRIES) {
+                        logger.debug("Nonce {} of {} on {} rejected: {}", nonce, address, node.getName(), r.getError().getMessage());
+                        return sendWithNonce(node, address, sender, attempt + 1);
+                    }
+                    return Observable.just(r);
+                });
+        });
+    }
+
+    public static boolean isNonceError(Response.Error error) {
+        if (error == null || error.getMessage() == null) {
+            return false;
+        }
+        String message = error.getMessage().toLowerCase();
+        return message.contains("nonce too low")
+            || message.contains("known transaction")
+            || message.contains("already known")
+            || message.contains("replacement transaction underpriced");
+    }
+
+    private static boolean isNonceTooLow(Response.Error error) {
+        return error != null && error.getMessage() != null && error.getMessage().toLowerCase().contains("nonce too low");
+    }
+
+    BigInteger pendingTransactionCount(Node node, String address) {
+        try {
+            return connectionFactory().getWeb3jConnection(node)
+                .ethGetTransactionCount(address, DefaultBlockParameterName.PENDING)
+                .send()
+                .getTransactionCount();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private AccountNonce accountNonce(Node node, String address) {
+        String key = node.getUrl() + "#" + address.toLowerCase();
+        return nonces.computeIfAbsent(key, k -> new AccountNonce(node, address));
+    }
+
+    private class AccountNonce {
+        private final Node node;
+        private final String address;
+        // next nonce to hand out, null when it has to be read from the node
+        private BigInteger next;
+
+        AccountNonce(Node node, String address) {
+            this.node = node;
+            this.address = address;
+        }
+
+        synchronized BigInteger reserve(int count) {
+            if (next == null) {
+                next = pendingTransactionCount(node, address);
+                logger.debug("Seeded nonce of {} on {}: {}", address, node.getName(), next);
+            }
+            BigInteger reserved = next;
+            next = next.add(BigInteger.valueOf(count));
+            return reserved;
+        }
+
+        synchronized void reset() {
+            next = null;
+        }
+
+        synchronized boolean resetIfLatest(BigInteger first, int count) {
+            if (next != null && !next.equals(first.add(BigInteger.valueOf(count)))) {
+                return false;
+            }
+            next = null;
+            return true;
+        }
+    }
+}
@@ -21,7 +21,6 @@ package com.quorum.gauge.services;
 
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.ext.BoolResponse;
-import com.quorum.gauge.ext.NodeInfo;
 import com.quorum.gauge.ext.StringResponse;
 import io.reactivex.Observable;
 import org.slf4j.Logger;
@@ -44,18 +43,14 @@ public class PermissionService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     private static final Logger logger = LoggerFactory.getLogger(PermissionService.class);
 
     public String NodeInfo(QuorumNetworkProperty.Node node) {
 
-        Request<?, NodeInfo> nodeInfoRequest = new Request<>(
-                "admin_nodeInfo",
-                null,
-                connectionFactory().getWeb3jService(node),
-                NodeInfo.class
-        );
-        NodeInfo nodeInfo = nodeInfoRequest.flowable().toObservable().blockingFirst();
-        return nodeInfo.getEnode();
+        return nodeMetadataCache.nodeInfo(node).blockingFirst().getEnode();
     }
 
     public Observable<PermissionAccountList> getPermissionAccountList(QuorumNetworkProperty.Node node) {
@@ -25,7 +25,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.web3j.quorum.PrivacyFlag;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -61,12 +60,7 @@ public class PrivacyService extends AbstractService {
     }
 
     public String id(String alias) {
-        List<String> matches = new ArrayList<>();
-        for (QuorumNetworkProperty.Node node : networkProperty().getNodes().values()) {
-            if (node.getPrivacyAddressAliases().containsKey(alias)) {
-                matches.add(node.getPrivacyAddressAliases().get(alias));
-            }
-        }
+        List<String> matches = networkProperty().getAliasIndex().privacyAddresses(alias);
         if (matches.size() == 0) {
             throw new RuntimeException("private address alias not found: " + alias);
         }
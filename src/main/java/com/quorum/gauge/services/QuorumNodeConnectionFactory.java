@@ -20,63 +20,233 @@
 package com.quorum.gauge.services;
 
 import com.quorum.gauge.Configuration;
+import com.quorum.gauge.common.Context;
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNode;
+import com.quorum.gauge.ext.BatchingWeb3jService;
+import com.quorum.gauge.ext.RpcMetricsInterceptor;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.websocket.WebSocketClient;
+import org.web3j.protocol.websocket.WebSocketService;
 import org.web3j.quorum.JsonRpc2_0Quorum;
 import org.web3j.quorum.Quorum;
 import org.web3j.utils.Async;
 
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Hands out JSON RPC clients for the nodes in the network.
+ * <p>
+ * Clients are cached per node URL and shared by all callers: {@link HttpService} and {@link Quorum} are
+ * thread-safe, and per-request values like the access token and PSI are added by the interceptors in
+ * {@link Configuration#okHttpClient} at call time, so they never leak between callers.
+ * Each factory instance has its own cache, hence a factory set via {@link com.quorum.gauge.common.Context}
+ * never serves clients of a different network.
+ */
 @Service
-public class QuorumNodeConnectionFactory {
+public class QuorumNodeConnectionFactory implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(QuorumNodeConnectionFactory.class);
+
+    // how long a WebSocket endpoint which can't be reached is not tried again
+    private static final Duration WEB_SOCKET_RETRY_DELAY = Duration.ofSeconds(30);
+
     @Autowired
     QuorumNetworkProperty networkProperty;
 
     @Autowired
     OkHttpClient okHttpClient;
 
+    private final Map<String, Web3jService> web3jServices = new ConcurrentHashMap<>();
+    private final Map<String, Quorum> connections = new ConcurrentHashMap<>();
+    private final Map<String, Quorum> webSocketConnections = new ConcurrentHashMap<>();
+    // when connecting failed, in nanos
+    private final Map<String, Long> webSocketFailures = new ConcurrentHashMap<>();
+    private final AtomicLong createdServiceCount = new AtomicLong();
+    private final AtomicLong createdConnectionCount = new AtomicLong();
+
     public Quorum getConnection(QuorumNode node) {
-        return Quorum.build(getWeb3jService(node));
+        return getConnection(nodeConfig(node));
     }
 
     public Quorum getConnection(QuorumNetworkProperty.Node node) {
-        return Quorum.build(getWeb3jService(node));
+        return connections.computeIfAbsent(connectionKey(node, 0), k -> {
+            createdConnectionCount.incrementAndGet();
+            return Quorum.build(getWeb3jService(node));
+        });
     }
 
     public Quorum getConnection(QuorumNetworkProperty.Node node, long pollingInterval) {
-        return new JsonRpc2_0Quorum(getWeb3jService(node), pollingInterval, Async.defaultExecutorService());
+        return connections.computeIfAbsent(connectionKey(node, pollingInterval), k -> {
+            createdConnectionCount.incrementAndGet();
+            return new JsonRpc2_0Quorum(getWeb3jService(node), pollingInterval, Async.defaultExecutorService());
+        });
     }
 
     public Web3j getWeb3jConnection(QuorumNode node) {
-        return Quorum.build(getWeb3jService(node));
+        return getConnection(node);
     }
 
     public Web3j getWeb3jConnection(QuorumNetworkProperty.Node node) {
-        return Quorum.build(getWeb3jService(node));
+        return getConnection(node);
     }
 
     public Web3jService getWeb3jService(QuorumNode node) {
-        QuorumNetworkProperty.Node nodeConfig = networkProperty.getNodes().get(node.name());
-        if (nodeConfig == null) {
-            throw new IllegalArgumentException("Can't find node " + node + " in the configuration");
-        }
-        return getWeb3jService(nodeConfig);
+        return getWeb3jService(nodeConfig(node));
     }
 
     public Web3jService getWeb3jService(QuorumNetworkProperty.Node node) {
-        return new HttpService(node.getUrl(), okHttpClient, false);
+        return web3jServices.computeIfAbsent(node.getUrl(), url -> {
+            createdServiceCount.incrementAndGet();
+            HttpService httpService = new RpcMetricsInterceptor.MeteredHttpService(url, okHttpClient, false);
+            QuorumNetworkProperty.MicroBatchingProperty microBatching = networkProperty.getRpc().getMicroBatching();
+            if (!microBatching.isEnabled()) {
+                return httpService;
+            }
+            return new BatchingWeb3jService(httpService, microBatching.getWindow(), microBatching.getMaxSize());
+        });
+    }
+
+    /**
+     * WebSocket requests can't carry per-call headers so the access token and PSI in {@link Context}
+     * are sent during the handshake, hence one connection is kept for each combination of them.
+     *
+     * @return a client backed by {@link QuorumNetworkProperty.Node#getWsUrl()} or empty if the node
+     * has no WebSocket endpoint or it couldn't be reached in the last {@link #WEB_SOCKET_RETRY_DELAY}
+     */
+    public Optional<Web3j> getWebSocketConnection(QuorumNetworkProperty.Node node) {
+        if (StringUtils.isBlank(node.getWsUrl())) {
+            return Optional.empty();
+        }
+        Map<String, String> headers = new HashMap<>();
+        if (StringUtils.isNotEmpty(Context.retrieveAccessToken())) {
+            headers.put("Authorization", Context.retrieveAccessToken());
+        }
+        if (StringUtils.isNotEmpty(Context.retrievePSI())) {
+            headers.put("Quorum-PSI", Context.retrievePSI());
+        }
+        String key = node.getWsUrl() + "#" + headers;
+        Long failedAt = webSocketFailures.get(key);
+        if (failedAt != null && System.nanoTime() - failedAt < WEB_SOCKET_RETRY_DELAY.toNanos()) {
+            return Optional.empty();
+        }
+        try {
+            Optional<Web3j> connection = Optional.of(webSocketConnections.computeIfAbsent(key, k -> {
+                createdConnectionCount.incrementAndGet();
+                return Quorum.build(newWebSocketService(node.getWsUrl(), headers));
+            }));
+            webSocketFailures.remove(key);
+            return connection;
+        } catch (RuntimeException e) {
+            webSocketFailures.put(key, System.nanoTime());
+            logger.warn("Unable to connect to {} of node {}, falling back to HTTP for {}: {}", node.getWsUrl(), node.getName(), WEB_SOCKET_RETRY_DELAY, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Drop cached clients of the given node so the next call builds new ones, e.g.: after the node has been
+     * restarted, which closes its WebSocket connections, or its URL has changed
+     */
+    public void evict(QuorumNetworkProperty.Node node) {
+        web3jServices.remove(node.getUrl());
+        connections.keySet().removeIf(k -> k.startsWith(node.getUrl() + "#"));
+        if (StringUtils.isNotBlank(node.getWsUrl())) {
+            webSocketFailures.keySet().removeIf(k -> k.startsWith(node.getWsUrl() + "#"));
+            webSocketConnections.entrySet().removeIf(e -> {
+                if (e.getKey().startsWith(node.getWsUrl() + "#")) {
+                    e.getValue().shutdown();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * @return number of {@link Web3jService} instances created by this factory so far
+     */
+    public long getCreatedServiceCount() {
+        return createdServiceCount.get();
+    }
+
+    /**
+     * @return number of {@link Quorum} clients created by this factory so far
+     */
+    public long getCreatedConnectionCount() {
+        return createdConnectionCount.get();
     }
 
     public QuorumNetworkProperty getNetworkProperty() {
         return this.networkProperty;
     }
+
+    /**
+     * @return micro-batching services keyed by node URL, empty if micro-batching is disabled
+     */
+    public Map<String, BatchingWeb3jService> getBatchingServices() {
+        Map<String, BatchingWeb3jService> services = new HashMap<>();
+        web3jServices.forEach((url, service) -> {
+            if (service instanceof BatchingWeb3jService) {
+                services.put(url, (BatchingWeb3jService) service);
+            }
+        });
+        return services;
+    }
+
+    @Override
+    public void destroy() {
+        getBatchingServices().forEach((url, service) -> {
+            Histogram sizes = service.getBatchSizes();
+            Histogram waits = service.getWaitTimes();
+            logger.info("Micro-batching {}: {} batches, size mean={} max={}, wait p50={}us p99={}us max={}us",
+                url, sizes.getTotalCount(), String.format("%.1f", sizes.getMean()), sizes.getMaxValue(),
+                waits.getValueAtPercentile(50), waits.getValueAtPercentile(99), waits.getMaxValue());
+        });
+        webSocketConnections.values().forEach(Web3j::shutdown);
+        webSocketConnections.clear();
+    }
+
+    private WebSocketService newWebSocketService(String url, Map<String, String> headers) {
+        WebSocketClient client = new WebSocketClient(URI.create(url), headers);
+        if (okHttpClient.proxy() != null) {
+            client.setProxy(okHttpClient.proxy());
+        }
+        WebSocketService service = new WebSocketService(client, false);
+        try {
+            service.connect();
+        } catch (ConnectException e) {
+            throw new RuntimeException(e);
+        }
+        createdServiceCount.incrementAndGet();
+        return service;
+    }
+
+    private QuorumNetworkProperty.Node nodeConfig(QuorumNode node) {
+        QuorumNetworkProperty.Node nodeConfig = networkProperty.getNodes().get(node.name());
+        if (nodeConfig == null) {
+            throw new IllegalArgumentException("Can't find node " + node + " in the configuration");
+        }
+        return nodeConfig;
+    }
+
+    private String connectionKey(QuorumNetworkProperty.Node node, long pollingInterval) {
+        return node.getUrl() + "#" + pollingInterval;
+    }
 }
@@ -19,6 +19,8 @@
 
 package com.quorum.gauge.services;
 
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.ContextScheduler;
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNode;
 import com.quorum.gauge.common.RawDeployedContractTarget;
@@ -33,6 +35,7 @@ import com.quorum.gauge.sol.SimpleStorage;
 import com.quorum.gauge.sol.SimpleStorageDelegate;
 import com.quorum.gauge.sol.SneakyWrapper;
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.schedulers.Schedulers;
 import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
@@ -45,10 +48,11 @@ import org.web3j.abi.datatypes.Function;
 import org.web3j.crypto.CipherException;
 import org.web3j.crypto.Credentials;
 import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.Sign;
 import org.web3j.crypto.TransactionEncoder;
 import org.web3j.crypto.WalletUtils;
+import org.web3j.crypto.transaction.type.TransactionType;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.Request;
 import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
@@ -63,10 +67,6 @@ import org.web3j.quorum.enclave.Tessera;
 import org.web3j.quorum.enclave.protocol.EnclaveService;
 import org.web3j.quorum.methods.request.PrivateTransaction;
 import org.web3j.quorum.tx.ClientTransactionManager;
-import org.web3j.rlp.RlpDecoder;
-import org.web3j.rlp.RlpEncoder;
-import org.web3j.rlp.RlpList;
-import org.web3j.rlp.RlpString;
 import org.web3j.tx.Contract;
 import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.ReadonlyTransactionManager;
@@ -82,21 +82,37 @@ import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class RawContractService extends AbstractService {
     private static final Logger logger = LoggerFactory.getLogger(RawContractService.class);
 
+    // max number of payloads being stored in the enclave at the same time
+    private static final int PARALLEL_STORE_RAW_REQUESTS = 8;
+
     @Autowired
     PrivacyService privacyService;
 
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     @Autowired
     TransactionService transactionService;
 
+    @Autowired
+    NonceManager nonceManager;
+
+    @Autowired
+    TransactionReceiptResolver receiptResolver;
+
     @Autowired
     OkHttpClient httpClient;
 
@@ -354,19 +370,23 @@ public class RawContractService extends AbstractService {
     }
 
 
+    private volatile String simpleStorageBinary;
+
     private String base64SimpleStorageConstructorBytecode(int initialValue) {
-        final InputStream binaryStream = SimpleStorage.class.getResourceAsStream("/com.quorum.gauge.sol/SimpleStorage.bin");
-        if (binaryStream == null) {
-            throw new IllegalStateException("Can't find resource SimpleStorage.bin");
-        }
+        if (simpleStorageBinary == null) {
+            final InputStream binaryStream = SimpleStorage.class.getResourceAsStream("/com.quorum.gauge.sol/SimpleStorage.bin");
+            if (binaryStream == null) {
+                throw new IllegalStateException("Can't find resource SimpleStorage.bin");
+            }
 
-        final String binary;
-        try {
-            binary = StreamUtils.copyToString(binaryStream, Charset.defaultCharset());
-        } catch (IOException e) {
-            logger.error("Unable to parse contents of SimpleStorage.bin", e);
-            throw new RuntimeException(e);
+            try {
+                simpleStorageBinary = StreamUtils.copyToString(binaryStream, Charset.defaultCharset());
+            } catch (IOException e) {
+                logger.error("Unable to parse contents of SimpleStorage.bin", e);
+                throw new RuntimeException(e);
+            }
         }
+        final String binary = simpleStorageBinary;
 
         final String encodedConstructor = FunctionEncoder.encodeConstructor(Arrays.asList(new org.web3j.abi.datatypes.generated.Uint256(initialValue)));
         final String constructorWithArgs = binary + encodedConstructor;
@@ -559,7 +579,7 @@ public class RawContractService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             return SneakyWrapper.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
@@ -576,44 +596,89 @@ public class RawContractService extends AbstractService {
         }
     }
 
-    public List<Observable<RawDeployedContractTarget>> createNRawSimplePrivateContract(int count, WalletData wallet, QuorumNode source, QuorumNode[] targetNodes) throws IOException, CipherException {
+    /**
+     * Deploy {@code count} SimpleStorage contracts privately for each of the target nodes.
+     * <p>
+     * Contracts go through a staged pipeline: payloads are stored in the enclave with bounded parallelism,
+     * transactions are signed in parallel across cores, then submitted one by one in nonce order
+     * as soon as they are signed. Receipts are awaited concurrently.
+     *
+     * @return all deployed contracts, the first {@code count} ones for the first target node and so on
+     */
+    public Observable<List<RawDeployedContractTarget>> createNRawSimplePrivateContract(int count, WalletData wallet, QuorumNode source, QuorumNode[] targetNodes) throws IOException, CipherException {
         try {
             Quorum client = connectionFactory().getConnection(source);
             Credentials credentials = WalletUtils.loadCredentials(wallet.getWalletPass(), wallet.getWalletPath());
             String fromAddress = credentials.getAddress();
-            BigInteger transactionCount = client.ethGetTransactionCount(fromAddress, DefaultBlockParameterName.LATEST).flowable().toObservable().blockingFirst().getTransactionCount();
+            QuorumNetworkProperty.Node sourceNode = networkProperty().getNode(source.name());
+            int total = count * targetNodes.length;
+            BigInteger transactionCount = nonceManager.reserve(sourceNode, fromAddress, total);
             Enclave enclave = buildEnclave(source, client);
-            List<Observable<RawDeployedContractTarget>> allObservableContracts = new ArrayList<>();
-
-            int counter = 0;
-            for (QuorumNode targetNode : targetNodes) {
-                RawPrivateContract[] rawPrivateContracts = new RawPrivateContract[count];
-                for (int j = 0; j < count; j++) {
-                    int arbitraryValue = new Random().nextInt(50) + 1;
-                    String payload = base64SimpleStorageConstructorBytecode(arbitraryValue);
+            String sourceId = privacyService.id(source);
+            // stages run in other threads so they need the caller's context
+            Scheduler scheduler = ContextScheduler.with(Context.capture());
+            AtomicLong storeNanos = new AtomicLong();
+            AtomicLong signNanos = new AtomicLong();
+            AtomicLong submitNanos = new AtomicLong();
+            AtomicBoolean submitted = new AtomicBoolean();
+            long start = System.nanoTime();
+            return Observable.range(0, total)
+                // contracts are ordered by nonce, the first `count` ones for the first target and so on
+                .concatMapEager(i -> Observable.fromCallable(() -> {
+                    long t = System.nanoTime();
+                    int arbitraryValue = ThreadLocalRandom.current().nextInt(50) + 1;
                     SendResponse storeRawResponse = enclave.storeRawRequest(
-                        payload,
-                        privacyService.id(source),
+                        base64SimpleStorageConstructorBytecode(arbitraryValue),
+                        sourceId,
                         Collections.emptyList()
                     );
-                    String tmHash = base64ToHex(storeRawResponse.getKey());
+                    storeNanos.addAndGet(System.nanoTime() - t);
+                    return new RawPrivateContract(i, base64ToHex(storeRawResponse.getKey()), arbitraryValue, targetNodes[i / count]);
+                }).subscribeOn(scheduler), PARALLEL_STORE_RAW_REQUESTS, 1)
+                .concatMapEager(raw -> Observable.fromCallable(() -> {
+                    long t = System.nanoTime();
                     RawTransaction tx = RawTransaction.createContractTransaction(
-                        transactionCount.add(BigInteger.valueOf(counter)),
+                        transactionCount.add(BigInteger.valueOf(raw.index)),
                         BigInteger.ZERO,
                         DEFAULT_GAS_LIMIT,
                         BigInteger.ZERO,
-                        tmHash
+                        raw.tmHash
                     );
-                    counter++;
-                    rawPrivateContracts[j] = new RawPrivateContract(sign(tx, credentials), arbitraryValue, targetNode);
-                }
-                allObservableContracts.add(Observable.fromArray(rawPrivateContracts)
-                    .flatMap(raw -> sendRawPrivateTransaction(source, raw.rawTransaction, targetNode)
-                        .map(b -> transactionService.waitForTransactionReceipt(targetNode, b.getTransactionHash()))
-                        .map(receipt -> new RawDeployedContractTarget(raw.value, raw.node, receipt))
-                        .subscribeOn(Schedulers.single())));
-            }
-            return allObservableContracts;
+                    raw.rawTransaction = sign(tx, credentials);
+                    signNanos.addAndGet(System.nanoTime() - t);
+                    return raw;
+                }).subscribeOn(Schedulers.computation()), Runtime.getRuntime().availableProcessors(), 1)
+                // one submission at a time so the node receives the transactions in nonce order
+                .concatMap(raw -> Observable.defer(() -> {
+                    long t = System.nanoTime();
+                    return sendRawPrivateTransaction(source, raw.rawTransaction, raw.node)
+                        .doOnNext(r -> submitNanos.addAndGet(System.nanoTime() - t))
+                        .map(r -> {
+                            if (r.hasError()) {
+                                throw new RuntimeException("unable to submit raw private contract " + raw.index + ": " + r.getError().getMessage());
+                            }
+                            return new AbstractMap.SimpleImmutableEntry<>(raw, r.getTransactionHash());
+                        });
+                }).subscribeOn(scheduler))
+                .doOnComplete(() -> logger.info("Submitted {} raw private contracts from {} in {} ms (cumulative store raw: {} ms, sign: {} ms, submit: {} ms)",
+                    total, source, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    TimeUnit.NANOSECONDS.toMillis(storeNanos.get()), TimeUnit.NANOSECONDS.toMillis(signNanos.get()), TimeUnit.NANOSECONDS.toMillis(submitNanos.get())))
+                // some of the reserved nonces may not have been used
+                .doOnError(e -> nonceManager.resync(sourceNode, fromAddress, transactionCount, total))
+                .doOnComplete(() -> submitted.set(true))
+                .doOnDispose(() -> {
+                    if (!submitted.get()) {
+                        nonceManager.resync(sourceNode, fromAddress, transactionCount, total);
+                    }
+                })
+                // receipts are awaited concurrently but kept in nonce order
+                .concatMapEager(sent -> Observable.defer(() -> {
+                    RawPrivateContract raw = sent.getKey();
+                    return receiptResolver.awaitReceipt(networkProperty().getNode(raw.node.name()), sent.getValue())
+                        .map(receipt -> new RawDeployedContractTarget(raw.value, raw.node, receipt));
+                }).subscribeOn(scheduler))
+                .toList()
+                .toObservable();
         } catch (IOException e) {
             logger.error("RawTransaction - private", e);
             throw e;
@@ -624,54 +689,38 @@ public class RawContractService extends AbstractService {
     }
 
     private static class RawPrivateContract {
+        final int index;
+        final String tmHash;
+        final int value;
+        final QuorumNode node;
         String rawTransaction;
-        int value;
-        QuorumNode node;
 
-        public RawPrivateContract(String rawTransaction, int value, QuorumNode node) {
-            this.rawTransaction = rawTransaction;
+        RawPrivateContract(int index, String tmHash, int value, QuorumNode node) {
+            this.index = index;
+            this.tmHash = tmHash;
             this.value = value;
             this.node = node;
         }
     }
 
+    /**
+     * Sign {@code rawTransaction} as a private transaction, i.e.: with {@code v} set to 37 or 38.
+     * <p>
+     * The private {@code v} is set in the signature before it is encoded, so the signed transaction
+     * is encoded only once instead of being decoded and encoded again to mark it as private.
+     * Other than legacy transactions can't be private and are signed as they are.
+     */
     public String sign(final RawTransaction rawTransaction, Credentials credentials) {
-
-        byte[] signedMessage = TransactionEncoder.signMessage(rawTransaction, credentials);
-
-            signedMessage = setPrivate(signedMessage);
-
-        return Numeric.toHexString(signedMessage);
+        if (rawTransaction.getType() != TransactionType.LEGACY) {
+            return Numeric.toHexString(TransactionEncoder.signMessage(rawTransaction, credentials));
+        }
+        Sign.SignatureData signature = Sign.signMessage(TransactionEncoder.encode(rawTransaction), credentials.getEcKeyPair());
+        return Numeric.toHexString(TransactionEncoder.encode(rawTransaction, privateSignature(signature)));
     }
 
-    private byte[] setPrivate(final byte[] signedMessage) {
-        // If the byte array RLP decodes to a list of size >= 1 containing a list of size >= 3
-        // then find the 3rd element from the last. If the element is a RlpString of size 1 then
-        // it should be the V component from the SignatureData structure -> mark the transaction as private.
-        // If any of of the above checks fails then return the original byte array.
-        var rlpWrappingList = RlpDecoder.decode(signedMessage);
-        var result = signedMessage;
-        if (!rlpWrappingList.getValues().isEmpty()) {
-            var rlpList = rlpWrappingList.getValues().get(0);
-            if (rlpList instanceof RlpList) {
-                var rlpListSize = ((RlpList) rlpList).getValues().size();
-                if (rlpListSize > 3) {
-                    var vField = ((RlpList) rlpList).getValues().get(rlpListSize - 3);
-                    if (vField instanceof RlpString) {
-                        if (1 == ((RlpString) vField).getBytes().length) {
-                            var first = ((RlpString) vField).getBytes()[0];
-
-                            if (first == 28) {
-                                ((RlpString) vField).getBytes()[0] = 38;
-                            } else {
-                                ((RlpString) vField).getBytes()[0] = 37;
-                            }
-                            result = RlpEncoder.encode(rlpList);
-                        }
-                    }
-                }
-            }
-        }
-        return result;
+    // v is 27 or 28 for public transactions and 37 or 38 for private ones
+    private static Sign.SignatureData privateSignature(Sign.SignatureData signature) {
+        byte v = signature.getV()[0] == 28 ? (byte) 38 : (byte) 37;
+        return new Sign.SignatureData(v, signature.getR(), signature.getS());
     }
 }
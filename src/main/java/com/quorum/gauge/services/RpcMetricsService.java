@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.quorum.gauge.common.QuorumNetworkProperty;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects counts, bytes and latencies of HTTP requests per step, node and JSON RPC method.
+ * <p>
+ * Requests are recorded by {@link com.quorum.gauge.ext.RpcMetricsInterceptor}. The collected metrics
+ * are reset for every scenario and written as JSON and CSV into {@code rpc-metrics} under the Gauge reports directory.
+ */
+@Service
+public class RpcMetricsService {
+    private static final Logger logger = LoggerFactory.getLogger(RpcMetricsService.class);
+
+    private static final String CSV_HEADER = "spec,scenario,step,node,method,count,failures,requestBytes,responseBytes,p50Micros,p99Micros,maxMicros,totalMillis";
+
+    @Autowired
+    QuorumNetworkProperty networkProperty;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+    // node names keyed by host:port of their RPC endpoint
+    private volatile Map<String, String> nodeNames;
+    private volatile String currentStep = "";
+
+    public void record(String host, int port, String method, long requestBytes, long responseBytes, long latencyMicros, boolean failed) {
+        Key key = new Key(currentStep, nodeName(host, port), method);
+        Stats s = stats.computeIfAbsent(key, k -> new Stats());
+        s.count.incrementAndGet();
+        if (failed) {
+            s.failures.incrementAndGet();
+        }
+        s.requestBytes.addAndGet(Math.max(0, requestBytes));
+        s.responseBytes.addAndGet(Math.max(0, responseBytes));
+        s.latency.recordValue(latencyMicros);
+    }
+
+    public void setCurrentStep(String step) {
+        this.currentStep = StringUtils.defaultString(step);
+    }
+
+    public void reset() {
+        stats.clear();
+        currentStep = "";
+        // nodes may differ between scenarios
+        nodeNames = null;
+    }
+
+    /**
+     * Write metrics collected since the last {@link #reset()} to {@code <spec>__<scenario>.json}
+     * and append them to {@code rpc-metrics.csv}
+     */
+    public void writeReport(String spec, String scenario) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        stats.forEach((key, s) -> rows.add(toRow(spec, scenario, key, s)));
+        // most time consuming first
+        rows.sort(Comparator.comparingLong((Map<String, Object> row) -> (Long) row.get("totalMillis")).reversed());
+        Path dir = reportsDir().resolve("rpc-metrics");
+        try {
+            Files.createDirectories(dir);
+            objectMapper.writeValue(dir.resolve(fileName(spec) + "__" + fileName(scenario) + ".json").toFile(), rows);
+            appendCsv(dir.resolve("rpc-metrics.csv"), rows);
+        } catch (IOException e) {
+            logger.warn("Unable to write RPC metrics to {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private synchronized void appendCsv(Path csv, List<Map<String, Object>> rows) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (!Files.exists(csv)) {
+            sb.append(CSV_HEADER).append("\n");
+        }
+        for (Map<String, Object> row : rows) {
+            List<String> values = new ArrayList<>();
+            row.values().forEach(v -> values.add(csvValue(v)));
+            sb.append(String.join(",", values)).append("\n");
+        }
+        Files.write(csv, sb.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private Map<String, Object> toRow(String spec, String scenario, Key key, Stats s) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("spec", spec);
+        row.put("scenario", scenario);
+        row.put("step", key.step);
+        row.put("node", key.node);
+        row.put("method", key.method);
+        row.put("count", s.count.get());
+        row.put("failures", s.failures.get());
+        row.put("requestBytes", s.requestBytes.get());
+        row.put("responseBytes", s.responseBytes.get());
+        row.put("p50Micros", s.latency.getValueAtPercentile(50));
+        row.put("p99Micros", s.latency.getValueAtPercentile(99));
+        row.put("maxMicros", s.latency.getMaxValue());
+        row.put("totalMillis", Math.round(s.latency.getMean() * s.latency.getTotalCount() / 1000));
+        return row;
+    }
+
+    private String nodeName(String host, int port) {
+        if (nodeNames == null) {
+            Map<String, String> names = new ConcurrentHashMap<>();
+            networkProperty.getNodes().forEach((name, node) -> {
+                try {
+                    URI uri = URI.create(node.getUrl());
+                    names.put(uri.getHost() + ":" + uri.getPort(), name);
+                } catch (RuntimeException e) {
+                    logger.debug("Ignoring URL of node {}: {}", name, e.getMessage());
+                }
+            });
+            nodeNames = names;
+        }
+        return nodeNames.getOrDefault(host + ":" + port, host + ":" + port);
+    }
+
+    private static Path reportsDir() {
+        // set by Gauge from the env properties
+        return Paths.get(StringUtils.defaultIfEmpty(System.getenv("gauge_reports_dir"), "target/gauge/reports"));
+    }
+
+    private static String fileName(String s) {
+        return StringUtils.defaultString(s).replaceAll("[^A-Za-z0-9._-]+", "_");
+    }
+
+    private static String csvValue(Object v) {
+        String s = String.valueOf(v);
+        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
+            return "\"" + s.replace("\"", "\"\"") + "\"";
+        }
+        return s;
+    }
+
+    private static class Key {
+        final String step;
+        final String node;
+        final String method;
+
+        Key(String step, String node, String method) {
+            this.step = step;
+            this.node = node;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return step.equals(key.step) && node.equals(key.node) && method.equals(key.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(step, node, method);
+        }
+    }
+
+    private static class Stats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong requestBytes = new AtomicLong();
+        final AtomicLong responseBytes = new AtomicLong();
+        // in microseconds
+        final Histogram latency = new ConcurrentHistogram(3);
+    }
+}
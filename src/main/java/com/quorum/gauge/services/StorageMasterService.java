@@ -22,7 +22,6 @@ package com.quorum.gauge.services;
 
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNode;
-import com.quorum.gauge.ext.EthChainId;
 import com.quorum.gauge.ext.PrivateClientTransactionManager;
 import com.quorum.gauge.sol.SimpleStorage;
 import com.quorum.gauge.sol.StorageMaster;
@@ -41,7 +40,6 @@ import org.web3j.tx.TransactionManager;
 import org.web3j.tx.exceptions.ContractCallException;
 
 import java.math.BigInteger;
-import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -58,6 +56,9 @@ public class StorageMasterService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     public Observable<? extends Contract> createStorageMasterContract(QuorumNode source, List<QuorumNode> targets, BigInteger gas, PrivacyFlag flags) {
         Quorum client = connectionFactory().getConnection(source);
         final List<String> privateFor;
@@ -157,7 +158,7 @@ public class StorageMasterService extends AbstractService {
     }
 
     public Observable<? extends Contract> createStorageMasterPublicContract(QuorumNetworkProperty.Node node, BigInteger gas) {
-        long chainId = rpcService.call(node, "eth_chainId", Collections.emptyList(), EthChainId.class).blockingFirst().getChainId();
+        long chainId = nodeMetadataCache.chainId(node).blockingFirst();
 
         Quorum client = connectionFactory().getConnection(node);
 
@@ -175,7 +176,7 @@ public class StorageMasterService extends AbstractService {
                                                                                      final BigInteger gasLimit,
                                                                                      final int newValue) {
         final Quorum client = connectionFactory().getConnection(node);
-        long chainId = rpcService.call(node, "eth_chainId", Collections.emptyList(), EthChainId.class).blockingFirst().getChainId();
+        long chainId = nodeMetadataCache.chainId(node).blockingFirst();
 
         return accountService.getDefaultAccountAddress(node).flatMap(acctAddress -> {
             org.web3j.tx.ClientTransactionManager txManager = vanillaClientTransactionManager(client, acctAddress, chainId);
@@ -188,7 +189,7 @@ public class StorageMasterService extends AbstractService {
         Quorum client = connectionFactory().getConnection(node);
         String address;
         try {
-            address = client.ethCoinbase().send().getAddress();
+            address = nodeMetadataCache.coinbase(node).blockingFirst();
             ReadonlyTransactionManager txManager = new ReadonlyTransactionManager(client, address);
             return StorageMaster.load(contractAddress, client, txManager,
                 BigInteger.valueOf(0),
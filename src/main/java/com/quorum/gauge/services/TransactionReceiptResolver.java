@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import com.quorum.gauge.ext.QuorumTransactionManagerService;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves transaction receipts by following the chain head of a node instead of polling each transaction.
+ * <p>
+ * There's one resolver per node. It watches the head once, reads the transactions of every new block
+ * and completes the pending receipts whose hashes appear, so the load on the node grows with
+ * the number of blocks and not with the number of outstanding transactions.
+ * Receipts of privacy marker transactions are swapped with the internal private transaction receipts,
+ * same as {@link TransactionService#getTransactionReceipt}.
+ */
+@Service
+public class TransactionReceiptResolver extends AbstractService implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionReceiptResolver.class);
+
+    private static final Duration HEAD_POLLING_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration RECEIPT_TIMEOUT = Duration.ofMinutes(3);
+
+    @Autowired
+    ChainHeadTracker chainHeadTracker;
+
+    private final Map<String, NodeReceiptResolver> resolvers = new ConcurrentHashMap<>();
+
+    @Override
+    public void destroy() {
+        resolvers.values().forEach(NodeReceiptResolver::shutdown);
+        resolvers.clear();
+    }
+
+    /**
+     * @return the receipt of the transaction once it's mined, or an error if it's not mined within the timeout
+     */
+    public Observable<TransactionReceipt> awaitReceipt(Node node, String transactionHash) {
+        String key = node.getUrl() + "#" + Context.retrievePSI() + "#" + Context.retrieveAccessToken();
+        return resolvers.computeIfAbsent(key, k -> new NodeReceiptResolver(node))
+            .await(transactionHash)
+            .timeout(RECEIPT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+            .toObservable();
+    }
+
+    private class NodeReceiptResolver {
+        private final Node node;
+        private final Web3j client;
+        private final Web3jService web3jService;
+        private final ThreadPoolExecutor executor;
+        private final Scheduler scheduler;
+        private final Map<String, PendingReceipt> pending = new ConcurrentHashMap<>();
+        // to process newly registered transactions without waiting for the next block
+        private final Subject<BigInteger> wakeUp = PublishSubject.<BigInteger>create().toSerialized();
+        // below are only accessed from the scheduler thread
+        private BigInteger lastProcessedBlock;
+        private Disposable watcher;
+
+        NodeReceiptResolver(Node node) {
+            this.node = node;
+            this.client = connectionFactory().getWeb3jConnection(node);
+            this.web3jService = connectionFactory().getWeb3jService(node);
+            // requests are sent from the resolver thread so it needs the caller's context
+            Context.Snapshot context = Context.capture();
+            // a single thread, released when idle, so blocks are processed in order
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(() -> {
+                    context.restore();
+                    r.run();
+                }, "ReceiptResolver-" + node.getName());
+                t.setDaemon(true);
+                return t;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            this.executor = executor;
+            this.scheduler = Schedulers.from(executor);
+        }
+
+        /**
+         * Callers waiting for the same transaction share its pending receipt,
+         * it's forgotten once the receipt is resolved or when no caller is waiting for it anymore
+         */
+        Single<TransactionReceipt> await(String transactionHash) {
+            String hash = transactionHash.toLowerCase();
+            return Single.defer(() -> {
+                PendingReceipt p = pending.compute(hash, (k, existing) -> {
+                    PendingReceipt receipt = existing == null ? new PendingReceipt(k) : existing;
+                    receipt.awaiters++;
+                    return receipt;
+                });
+                scheduler.scheduleDirect(this::ensureWatching);
+                wakeUp.onNext(BigInteger.valueOf(-1));
+                return Single.<TransactionReceipt>create(emitter -> p.future.whenComplete((r, e) -> {
+                    if (e != null) {
+                        emitter.tryOnError(e);
+                    } else {
+                        emitter.onSuccess(r);
+                    }
+                })).doFinally(() -> release(p));
+            });
+        }
+
+        private void release(PendingReceipt p) {
+            pending.computeIfPresent(p.transactionHash, (k, existing) -> existing == p && --existing.awaiters == 0 ? null : existing);
+        }
+
+        void shutdown() {
+            if (watcher != null) {
+                watcher.dispose();
+            }
+            executor.shutdownNow();
+        }
+
+        private void ensureWatching() {
+            if (watcher != null && !watcher.isDisposed()) {
+                return;
+            }
+            logger.debug("Start watching chain head of {} to resolve receipts", node.getName());
+            lastProcessedBlock = null;
+            watcher = Observable.merge(
+                chainHeadTracker.heads(node),
+                wakeUp)
+                .observeOn(scheduler)
+                .doOnNext(this::process)
+                .retryWhen(errors -> errors
+                    .doOnNext(e -> logger.debug("Unable to follow chain head of {}: {}", node.getName(), e.getMessage()))
+                    .delay(HEAD_POLLING_INTERVAL.toMillis(), TimeUnit.MILLISECONDS, scheduler))
+                .subscribe();
+        }
+
+        /**
+         * @param head latest block number or a negative number if it's only to check newly registered transactions
+         */
+        private void process(BigInteger head) throws IOException {
+            if (head.signum() >= 0) {
+                BigInteger from = lastProcessedBlock == null ? head : lastProcessedBlock.add(BigInteger.ONE);
+                for (BigInteger n = from; n.compareTo(head) <= 0; n = n.add(BigInteger.ONE)) {
+                    EthBlock.Block block = client.ethGetBlockByNumber(DefaultBlockParameter.valueOf(n), false).send().getBlock();
+                    if (block == null) {
+                        break;
+                    }
+                    for (EthBlock.TransactionResult<?> tx : block.getTransactions()) {
+                        PendingReceipt p = pending.get(String.valueOf(tx.get()).toLowerCase());
+                        if (p != null) {
+                            resolve(p);
+                        }
+                    }
+                    lastProcessedBlock = n;
+                }
+            }
+            // transactions may have been mined before they were registered so check them once directly
+            for (PendingReceipt p : pending.values()) {
+                if (!p.checked) {
+                    p.checked = true;
+                    resolve(p);
+                }
+            }
+            if (pending.isEmpty()) {
+                logger.debug("Stop watching chain head of {}", node.getName());
+                watcher.dispose();
+            }
+        }
+
+        private void resolve(PendingReceipt p) throws IOException {
+            EthGetTransactionReceipt response = client.ethGetTransactionReceipt(p.transactionHash).send();
+            if (response.getTransactionReceipt().isEmpty()) {
+                return;
+            }
+            // for PMTs: return the internal private tx receipt, same as TransactionService#getTransactionReceipt
+            TransactionReceipt receipt = QuorumTransactionManagerService.maybeGetPrivateTransactionReceipt(web3jService, response.getTransactionReceipt().get())
+                .orElse(response)
+                .getTransactionReceipt().get();
+            pending.remove(p.transactionHash, p);
+            p.future.complete(receipt);
+        }
+    }
+
+    private static class PendingReceipt {
+        final String transactionHash;
+        final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        volatile boolean checked;
+        // only changed while holding the lock of its entry in the pending map
+        int awaiters;
+
+        PendingReceipt(String transactionHash) {
+            this.transactionHash = transactionHash;
+        }
+    }
+}
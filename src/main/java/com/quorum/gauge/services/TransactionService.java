@@ -19,11 +19,13 @@
 
 package com.quorum.gauge.services;
 
+import com.quorum.gauge.common.Context;
+import com.quorum.gauge.common.ContextScheduler;
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNode;
-import com.quorum.gauge.common.RetryWithDelay;
 import com.quorum.gauge.ext.*;
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +34,7 @@ import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.ObjectMapperFactory;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
@@ -44,13 +47,11 @@ import org.web3j.quorum.methods.request.PrivateTransaction;
 import org.web3j.quorum.methods.response.PrivatePayload;
 import org.web3j.tx.Contract;
 
-import java.io.IOException;
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 import static com.quorum.gauge.sol.SimpleStorage.FUNC_SET;
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 
 @Service
@@ -60,22 +61,23 @@ public class TransactionService extends AbstractService {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    NodeMetadataCache nodeMetadataCache;
+
     @Autowired
     PrivacyService privacyService;
 
-    public TransactionReceipt waitForTransactionReceipt(QuorumNode node, String transactionHash) {
-        Optional<TransactionReceipt> receipt = getTransactionReceipt(node, transactionHash)
-            .map(ethGetTransactionReceipt -> {
-                if (ethGetTransactionReceipt.getTransactionReceipt().isPresent()) {
-                    return ethGetTransactionReceipt;
-                } else {
-                    throw new RuntimeException("retry");
-                }
-            }).retryWhen(new RetryWithDelay(20, 3000))
-            .blockingFirst().getTransactionReceipt();
+    @Autowired
+    TransactionReceiptResolver receiptResolver;
 
-        assertThat(receipt.isPresent()).isTrue();
-        return receipt.get();
+    @Autowired
+    RPCService rpcService;
+
+    @Autowired
+    NonceManager nonceManager;
+
+    public TransactionReceipt waitForTransactionReceipt(QuorumNode node, String transactionHash) {
+        return receiptResolver.awaitReceipt(networkProperty().getNode(node.name()), transactionHash).blockingFirst();
     }
 
     public Observable<EthGetTransactionReceipt> getTransactionReceipt(QuorumNode node, String transactionHash) {
@@ -106,15 +108,80 @@ public class TransactionService extends AbstractService {
     }
 
     public Optional<TransactionReceipt> pollTransactionReceipt(QuorumNetworkProperty.Node node, String transactionHash) {
-        for (int i = 0; i < 60; i++) {
-            EthGetTransactionReceipt r = getTransactionReceipt(node, transactionHash)
-                .delay(3, TimeUnit.SECONDS)
-                .blockingFirst();
-            if (r.getTransactionReceipt().isPresent()) {
-                return r.getTransactionReceipt();
+        return Optional.ofNullable(pollTransactionReceipts(node, Collections.singletonList(transactionHash)).get(transactionHash));
+    }
+
+    public Map<String, TransactionReceipt> pollTransactionReceipts(QuorumNetworkProperty.Node node, Collection<String> transactionHashes) {
+        return pollTransactionReceipts(node, transactionHashes, 60, Duration.ofSeconds(3));
+    }
+
+    /**
+     * Poll receipts of many transactions using JSON RPC batches.
+     * Each attempt only asks for the receipts which are still missing.
+     *
+     * @return receipts keyed by the given transaction hashes, transactions without receipt after all attempts are absent
+     */
+    public Map<String, TransactionReceipt> pollTransactionReceipts(QuorumNetworkProperty.Node node, Collection<String> transactionHashes, int maxAttempts, Duration delay) {
+        Map<String, TransactionReceipt> receipts = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>(transactionHashes);
+        for (int attempt = 0; attempt < maxAttempts && !missing.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(delay.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            getTransactionReceipts(node, missing).blockingForEach(receipts::putAll);
+            missing.removeAll(receipts.keySet());
+            logger.debug("Attempt {}: {} receipts available, {} missing", attempt + 1, receipts.size(), missing.size());
+        }
+        return receipts;
+    }
+
+    /**
+     * Fetch receipts in chunks of {@link QuorumNetworkProperty.RpcProperty#getBatchSize()} requests,
+     * with at most {@link QuorumNetworkProperty.RpcProperty#getBatchConcurrency()} batches in flight.
+     * <p>
+     * Each emitted map contains the available receipts of one batch, keyed by transaction hash.
+     */
+    private Observable<Map<String, TransactionReceipt>> getTransactionReceipts(QuorumNetworkProperty.Node node, Collection<String> transactionHashes) {
+        QuorumNetworkProperty.RpcProperty rpc = networkProperty().getRpc();
+        List<BatchRequest.Collector> batches = new ArrayList<>();
+        BatchRequest.Collector collector = null;
+        for (String txHash : transactionHashes) {
+            if (collector == null || collector.size() >= rpc.getBatchSize()) {
+                collector = BatchRequest.Collector.create();
+                batches.add(collector);
             }
+            collector.add("eth_getTransactionReceipt", Collections.singletonList(txHash));
         }
-        return Optional.empty();
+        // batches are sent from other threads so they need the caller's context
+        Scheduler scheduler = ContextScheduler.with(Context.capture());
+        return Observable.fromIterable(batches)
+            .flatMap(batch -> Observable.defer(() -> rpcService.call(node, batch).map(response -> toReceipts(node, batch, response)))
+                .subscribeOn(scheduler), Math.max(1, rpc.getBatchConcurrency()));
+    }
+
+    private Map<String, TransactionReceipt> toReceipts(QuorumNetworkProperty.Node node, BatchRequest.Collector batch, BatchResponse batchResponse) {
+        Map<String, TransactionReceipt> receipts = new HashMap<>();
+        for (ObjectResponse response : batchResponse.getResponses()) {
+            String txHash = (String) batch.getByID(response.getId()).getParams().get(0);
+            if (response.hasError()) {
+                logger.debug("Unable to get receipt for {}: {}", txHash, response.getError().getMessage());
+                continue;
+            }
+            if (response.getResult() == null) {
+                continue;
+            }
+            TransactionReceipt receipt = ObjectMapperFactory.getObjectMapper().convertValue(response.getResult(), TransactionReceipt.class);
+            // for PMTs: return the internal private tx receipt, same as getTransactionReceipt
+            receipts.put(txHash, QuorumTransactionManagerService.maybeGetPrivateTransactionReceipt(connectionFactory().getWeb3jService(node), receipt)
+                .flatMap(EthGetTransactionReceipt::getTransactionReceipt)
+                .orElse(receipt));
+        }
+        return receipts;
     }
 
     public Observable<EthSendTransaction> sendPublicTransaction(int value, QuorumNode from, QuorumNode to) {
@@ -140,34 +207,60 @@ public class TransactionService extends AbstractService {
             });
     }
 
+    /**
+     * Submit a SimpleStorage contract creation without waiting for it to be mined.
+     * The nonce is assigned by the node.
+     *
+     * @param privateFor recipients' privacy ids, the transaction is public if empty
+     */
+    public Observable<EthSendTransaction> sendSimpleStorageContract(QuorumNetworkProperty.Node from, String fromAddress, String binary, int initialValue, List<String> privateFor) {
+        String data = binary + FunctionEncoder.encodeConstructor(Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint256(initialValue)));
+        if (privateFor.isEmpty()) {
+            Web3j client = connectionFactory().getWeb3jConnection(from);
+            Transaction tx = Transaction.createContractTransaction(fromAddress, null, BigInteger.ZERO, DEFAULT_GAS_LIMIT, BigInteger.ZERO, data);
+            return client.ethSendTransaction(tx).flowable().toObservable();
+        }
+        Quorum client = connectionFactory().getConnection(from);
+        ExtendedPrivateTransaction tx = new ExtendedPrivateTransaction(
+            fromAddress,
+            null,
+            BigInteger.ZERO,
+            DEFAULT_GAS_LIMIT,
+            null,
+            BigInteger.ZERO,
+            data,
+            null,
+            privateFor
+        );
+        return client.ethSendTransaction(tx).flowable().toObservable();
+    }
+
     public Observable<EthSendTransaction> sendSignedPublicTransaction(int value, QuorumNode from, QuorumNode to) {
         Web3j client = connectionFactory().getWeb3jConnection(from);
+        QuorumNetworkProperty.Node fromNode = networkProperty().getNode(from.name());
         return Observable.zip(
             accountService.getDefaultAccountAddress(from).subscribeOn(Schedulers.io()),
             accountService.getDefaultAccountAddress(to).subscribeOn(Schedulers.io()),
-            (fromAddress, toAddress) -> {
-                BigInteger transactionCount = client.ethGetTransactionCount(fromAddress, DefaultBlockParameterName.LATEST)
-                    .flowable().toObservable().blockingFirst().getTransactionCount();
-                return Transaction.createEtherTransaction(fromAddress,
-                    transactionCount,
+            (fromAddress, toAddress) -> Arrays.asList(fromAddress, toAddress))
+            .flatMap(l -> nonceManager.sendWithNonce(fromNode, l.get(0), nonce -> {
+                Transaction tx = Transaction.createEtherTransaction(l.get(0),
+                    nonce,
                     BigInteger.ZERO,
                     DEFAULT_GAS_LIMIT,
-                    toAddress,
+                    l.get(1),
                     BigInteger.valueOf(value));
-            })
-            .flatMap(tx -> {
                 Request<?, EthSignTransaction> request = new Request<>(
                     "eth_signTransaction",
                     Arrays.asList(tx),
                     connectionFactory().getWeb3jService(from),
                     EthSignTransaction.class
                 );
-                return request.flowable().toObservable();
-            })
-            .flatMap(ethSignTransaction -> {
-                String rawHexString = ethSignTransaction.getRaw().orElseThrow();
-                return client.ethSendRawTransaction(rawHexString).flowable().toObservable();
-            });
+                return request.flowable().toObservable()
+                    .flatMap(ethSignTransaction -> {
+                        String rawHexString = ethSignTransaction.getRaw().orElseThrow();
+                        return client.ethSendRawTransaction(rawHexString).flowable().toObservable();
+                    });
+            }));
     }
 
     public Observable<EthSendTransaction> sendPrivateTransaction(int value, QuorumNode from, QuorumNode to) {
@@ -191,85 +284,75 @@ public class TransactionService extends AbstractService {
 
     public Observable<EthSendTransaction> sendSignedPrivateTransaction(int value, QuorumNode from, QuorumNode to) {
         Web3j client = connectionFactory().getWeb3jConnection(from);
+        QuorumNetworkProperty.Node fromNode = networkProperty().getNode(from.name());
         return Observable.zip(
             accountService.getDefaultAccountAddress(from).subscribeOn(Schedulers.io()),
             accountService.getDefaultAccountAddress(to).subscribeOn(Schedulers.io()),
-            (fromAddress, toAddress) -> {
-                BigInteger transactionCount = client.ethGetTransactionCount(fromAddress, DefaultBlockParameterName.LATEST)
-                    .flowable().toObservable().blockingFirst().getTransactionCount();
-                return new ExtendedPrivateTransaction(
-                    fromAddress,
-                    transactionCount,
+            (fromAddress, toAddress) -> Arrays.asList(fromAddress, toAddress))
+            .flatMap(l -> nonceManager.sendWithNonce(fromNode, l.get(0), nonce -> {
+                ExtendedPrivateTransaction tx = new ExtendedPrivateTransaction(
+                    l.get(0),
+                    nonce,
                     BigInteger.ZERO,
                     DEFAULT_GAS_LIMIT,
-                    toAddress,
+                    l.get(1),
                     BigInteger.valueOf(value),
                     null,
                     null,
                     Arrays.asList(privacyService.id(to))
                 );
-            })
-            .flatMap(tx -> {
                 Request<?, EthSignTransaction> request = new Request<>(
                     "eth_signTransaction",
                     Arrays.asList(tx),
                     connectionFactory().getWeb3jService(from),
                     EthSignTransaction.class
                 );
-                return request.flowable().toObservable();
-            })
-            .flatMap(ethSignTransaction -> {
-                String rawHexString = ethSignTransaction.getRaw().orElseThrow();
-                return client.ethSendRawTransaction(rawHexString).flowable().toObservable();
-            });
+                return request.flowable().toObservable()
+                    .flatMap(ethSignTransaction -> {
+                        String rawHexString = ethSignTransaction.getRaw().orElseThrow();
+                        return client.ethSendRawTransaction(rawHexString).flowable().toObservable();
+                    });
+            }));
     }
 
     public Observable<EthSendTransaction> sendSignedPrivateTransaction(String apiMethod, String txData, QuorumNode from, QuorumNode privateFor, String targetContract) {
         Quorum quorumClient = connectionFactory().getConnection(from);
 
-        // sleep to allow time for previous tx to be minted so that nonce is updated
-        try {
-            TimeUnit.MILLISECONDS.sleep(100);
-        } catch (InterruptedException e) {
-            logger.error("sleep interrupted", e);
-        }
-
         String fromAddress = accountService.getDefaultAccountAddress(from).blockingFirst();
 
-        BigInteger transactionCount = quorumClient.ethGetTransactionCount(fromAddress, DefaultBlockParameterName.LATEST)
-            .flowable().toObservable().blockingFirst().getTransactionCount();
-
-        ExtendedPrivateTransaction tx = new ExtendedPrivateTransaction(
-            fromAddress,
-            transactionCount,
-            BigInteger.ZERO,
-            DEFAULT_GAS_LIMIT,
-            targetContract,
-            null,
-            txData,
-            null,
-            Arrays.asList(privacyService.id(privateFor))
-        );
-
-        List<Object> params = new ArrayList<>(Collections.singletonList(tx));
-        if ("personal_signTransaction".equals(apiMethod)) {
-            // add empty password
-            params.add("");
-        }
-
-        Request<?, EthSignTransaction> request = new Request<>(
-            apiMethod,
-            params,
-            connectionFactory().getWeb3jService(from),
-            EthSignTransaction.class
-        );
-
-        Observable<EthSignTransaction> ethSignTransaction = request.flowable().toObservable();
+        return nonceManager.sendWithNonce(networkProperty().getNode(from.name()), fromAddress, nonce -> {
+            ExtendedPrivateTransaction tx = new ExtendedPrivateTransaction(
+                fromAddress,
+                nonce,
+                BigInteger.ZERO,
+                DEFAULT_GAS_LIMIT,
+                targetContract,
+                null,
+                txData,
+                null,
+                Arrays.asList(privacyService.id(privateFor))
+            );
 
-        String rawHexString = ethSignTransaction.blockingFirst().getRaw().orElseThrow();
-        logger.debug("rawHexString", rawHexString);
+            List<Object> params = new ArrayList<>(Collections.singletonList(tx));
+            if ("personal_signTransaction".equals(apiMethod)) {
+                // add empty password
+                params.add("");
+            }
 
-        return quorumClient.ethSendRawPrivateTransaction(rawHexString, Arrays.asList(privacyService.id(privateFor))).flowable().toObservable();
+            Request<?, EthSignTransaction> request = new Request<>(
+                apiMethod,
+                params,
+                connectionFactory().getWeb3jService(from),
+                EthSignTransaction.class
+            );
+
+            return request.flowable().toObservable()
+                .flatMap(ethSignTransaction -> {
+                    String rawHexString = ethSignTransaction.getRaw().orElseThrow();
+                    logger.debug("rawHexString {}", rawHexString);
+                    return quorumClient.ethSendRawPrivateTransaction(rawHexString, Arrays.asList(privacyService.id(privateFor))).flowable().toObservable();
+                });
+        });
     }
 
     // Invoking eth_getQuorumPayload
@@ -324,13 +407,7 @@ public class TransactionService extends AbstractService {
     // encodedData is the encoded smart contract binary + the encoded parameter list
     public Observable<EthEstimateGas> estimateGasForPublicContract(QuorumNetworkProperty.Node from, String encodedData) {
         Web3j client = connectionFactory().getWeb3jConnection(from);
-        String fromAddress;
-        try {
-            fromAddress = client.ethCoinbase().send().getAddress();
-        } catch (IOException e) {
-            logger.error("Unable to get default account for node " + from, e);
-            throw new RuntimeException(e);
-        }
+        String fromAddress = nodeMetadataCache.coinbase(from).blockingFirst();
 
         Transaction tx = Transaction.createContractTransaction(fromAddress,
             null, // TODO ricardolyn: should we really not send nonce?
@@ -344,13 +421,7 @@ public class TransactionService extends AbstractService {
     // encodedData is the encoded smart contract binary + the encoded parameter list
     public Observable<EthEstimateGas> estimateGasForPrivateContract(QuorumNode from, QuorumNode privateFor, String encodedData) {
         Web3j client = connectionFactory().getWeb3jConnection(from);
-        String fromAddress;
-        try {
-            fromAddress = client.ethCoinbase().send().getAddress();
-        } catch (IOException e) {
-            logger.error("Unable to get default account for node " + from, e);
-            throw new RuntimeException(e);
-        }
+        String fromAddress = nodeMetadataCache.coinbase(from).blockingFirst();
 
         String encodedConstructor = FunctionEncoder.encodeConstructor(Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint256(0)));
         return client.ethGetTransactionCount(fromAddress, DefaultBlockParameterName.LATEST)
@@ -372,13 +443,7 @@ public class TransactionService extends AbstractService {
 
     public Observable<EthEstimateGas> estimateGasForPublicContractCall(QuorumNode from, Contract c) {
         Web3j client = connectionFactory().getWeb3jConnection(from);
-        String fromAddress;
-        try {
-            fromAddress = client.ethCoinbase().send().getAddress();
-        } catch (IOException e) {
-            logger.error("Unable to get default account for node " + from, e);
-            throw new RuntimeException(e);
-        }
+        String fromAddress = nodeMetadataCache.coinbase(from).blockingFirst();
 
         //create the encoded smart contract call
         Function function = new Function(
@@ -400,13 +465,7 @@ public class TransactionService extends AbstractService {
 
     public Observable<EthEstimateGas> estimateGasForPrivateContractCall(QuorumNode from, QuorumNode privateFor, Contract c) {
         Web3j client = connectionFactory().getWeb3jConnection(from);
-        String fromAddress;
-        try {
-            fromAddress = client.ethCoinbase().send().getAddress();
-        } catch (IOException e) {
-            logger.error("Unable to get default account for node " + from, e);
-            throw new RuntimeException(e);
-        }
+        String fromAddress = nodeMetadataCache.coinbase(from).blockingFirst();
 
         //create the encoded smart contract call
         Function function = new Function(
@@ -26,6 +26,8 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -48,6 +50,11 @@ public class UnsupportedInfrastructureService implements InfrastructureService,
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Observable<NodeStartTimeline> startNetwork(List<NodeAttributes> nodes, NetworkResources networkResources) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Observable<Boolean> deleteResources(List<String> resourceIds) {
         throw new UnsupportedOperationException();
@@ -117,4 +124,19 @@ public class UnsupportedInfrastructureService implements InfrastructureService,
     public Observable<Boolean> grepLog(String resourceId, String grepStr, long timeoutAmount, TimeUnit timeoutUnit) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public Observable<String> grepLog(String resourceId, List<String> patterns, Instant since, Duration deadline) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Boolean> snapshot(String name, NetworkResources networkResources) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Observable<Boolean> restore(String name, NetworkResources networkResources) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -23,9 +23,9 @@ import com.quorum.gauge.common.QuorumNetworkProperty.Node;
 import com.quorum.gauge.common.QuorumNode;
 import com.quorum.gauge.ext.PendingTransaction;
 import io.reactivex.Observable;
-import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
@@ -41,12 +41,13 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
-import static org.assertj.core.api.Assertions.assertThat;
-
 @Service
 public class UtilService extends AbstractService {
     private static final Logger logger = LoggerFactory.getLogger(UtilService.class);
 
+    @Autowired
+    ChainHeadTracker chainHeadTracker;
+
     public Observable<EthBlockNumber> getCurrentBlockNumber() {
         return getCurrentBlockNumberFrom(QuorumNode.Node1);
     }
@@ -56,16 +57,7 @@ public class UtilService extends AbstractService {
     }
 
     public void waitForNodesToReach(final BigInteger targetBlockHeight, final Node... nodes) {
-        Observable.fromArray(nodes).flatMap(nodeName -> {
-            var currentBlockHeight = getCurrentBlockNumberFrom(nodeName).blockingFirst().getBlockNumber();
-            logger.debug(nodeName.getName() + " currentBlockHeight is " + currentBlockHeight + " target height is " + targetBlockHeight + " (" + (currentBlockHeight.compareTo(targetBlockHeight) >= 0) + ")");
-            return Observable.just(currentBlockHeight.compareTo(targetBlockHeight) >= 0);
-        }).doOnNext(ok -> {
-            assertThat(ok).as("Node must start successfully").isTrue();
-        }).observeOn(Schedulers.io()).retry(60, (x) -> {
-            Thread.sleep(Duration.ofSeconds(1).toMillis());
-            return true;
-        }).blockingSubscribe();
+        chainHeadTracker.awaitHeight(targetBlockHeight, Duration.ofSeconds(60), nodes);
         logger.debug("All nodes can be reached");
     }
 
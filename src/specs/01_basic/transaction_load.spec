@@ -0,0 +1,24 @@
+# Transaction load at a constant rate
+
+ Tags: load
+
+Transactions are sent at a constant rate regardless of how fast the node responds.
+Latencies are measured from the time each transaction was scheduled to be sent.
+
+## Public transactions
+
+* Generate "20" public transactions per second for "30" seconds from "Node1"
+* All generated transactions are mined
+* "p50" latency until transactions are "accepted" is at most "500" ms
+* "p99" latency until transactions are "accepted" is at most "2000" ms
+* "p99" latency until transactions are "mined" is at most "10000" ms
+* "max" latency until transactions are "mined" is at most "30000" ms
+
+## Mix of public and private transactions
+
+* Generate "20" transactions per second for "30" seconds from "Node1", "50" percent of them private for "Node2"
+* All generated transactions are mined
+* "p50" latency until transactions are "accepted" is at most "1000" ms
+* "p99" latency until transactions are "accepted" is at most "5000" ms
+* "p99" latency until transactions are "mined" is at most "15000" ms
+* "max" latency until transactions are "mined" is at most "30000" ms
@@ -15,7 +15,7 @@ upgradable to the new version
     | Node2 | <from_version> | develop  |
     | Node3 | <from_version> | develop  |
     | Node4 | <from_version> | develop  |
-* Use SimpleStorage smart contract, populate network with "500" public transactions randomly between "Node1,Node2,Node3,Node4"
+* Use SimpleStorage smart contract, populate network with "500" public transactions randomly between "Node1,Node2,Node3,Node4" or restore it from snapshot "populated"
 * Record the current block number, named it as "recordedBlockNumber"
 
 ## Migrate all nodes in the network at the same time
@@ -59,6 +59,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class BlockSynchronization extends AbstractSpecImplementation {
     private static final Logger logger = LoggerFactory.getLogger(BlockSynchronization.class);
 
+    private static final Duration CATCH_UP_DEADLINE = Duration.ofSeconds(100);
+
     @Autowired
     private InfrastructureService infraService;
 
@@ -85,8 +87,12 @@ public class BlockSynchronization extends AbstractSpecImplementation {
 
         NetworkResources networkResources = new NetworkResources();
         try {
-            Observable.fromIterable(nodes).flatMap(n -> infraService.startNode(NodeAttributes.forNode(n.getName()).withAdditionalGethArgs(additionalGethArgs), resourceId -> networkResources.add(n.getName(), resourceId))).doOnNext(ok -> {
-                assertThat(ok).as("Node must start successfully").isTrue();
+            List<NodeAttributes> attributes = nodes.stream()
+                .map(n -> NodeAttributes.forNode(n.getName()).withAdditionalGethArgs(additionalGethArgs))
+                .collect(Collectors.toList());
+            infraService.startNetwork(attributes, networkResources).doOnNext(timeline -> {
+                logger.info("Started {}", timeline);
+                assertThat(timeline.isStarted()).as("Node " + timeline.getNode() + " must start successfully").isTrue();
             }).doOnComplete(() -> {
                 Duration gracePeriod = networkProperty.getConsensusGracePeriod();
                 logger.debug("Waiting {}s for network to be up completely...", gracePeriod.toSeconds());
@@ -265,40 +271,13 @@ public class BlockSynchronization extends AbstractSpecImplementation {
     }
 
     public void waitForNodeToReachBlockNumber(Node node, BigInteger blockNumber) {
-        BigInteger currentBlockHeight = utilService.getCurrentBlockNumberFrom(node).blockingFirst().getBlockNumber();
-        int i = 0;
-        final int MAX_COUNT = 20;
-        while (currentBlockHeight.compareTo(blockNumber) < 0) {
-            try {
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            currentBlockHeight = utilService.getCurrentBlockNumberFrom(node).blockingFirst().getBlockNumber();
-            logger.debug("Current block number on host {} is {}", node.getName(), currentBlockHeight);
-            i++;
-            assertThat(i).isLessThanOrEqualTo(MAX_COUNT);
-        }
+        chainHeadTracker.awaitHeight(blockNumber, CATCH_UP_DEADLINE, node);
     }
 
 
     @Step("Wait to catch up block <block>")
     public void waitForNodeToReachBlockNumber(String block) {
-        BigInteger currentBlockHeight = utilService.getCurrentBlockNumber().blockingFirst().getBlockNumber();
-        BigInteger lastBlockHeight = new BigInteger(block);
-        int i = 0;
-        final int MAX_COUNT = 20;
-        while (currentBlockHeight.compareTo(lastBlockHeight) < 0) {
-            try {
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            currentBlockHeight = utilService.getCurrentBlockNumber().blockingFirst().getBlockNumber();
-            logger.debug("Current block number is {}", currentBlockHeight);
-            i++;
-            assertThat(i).isLessThanOrEqualTo(MAX_COUNT);
-        }
+        chainHeadTracker.awaitHeight(new BigInteger(block), CATCH_UP_DEADLINE, networkProperty.getNode(QuorumNode.Node1.name()));
     }
 
     @Step("Stop all nodes in the network <id>")
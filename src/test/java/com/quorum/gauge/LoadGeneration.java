@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.quorum.gauge;
+
+import com.quorum.gauge.common.QuorumNode;
+import com.quorum.gauge.core.AbstractSpecImplementation;
+import com.quorum.gauge.services.LoadGeneratorService;
+import com.quorum.gauge.services.LoadGeneratorService.LoadProfile;
+import com.quorum.gauge.services.LoadGeneratorService.LoadReport;
+import com.thoughtworks.gauge.Gauge;
+import com.thoughtworks.gauge.Step;
+import com.thoughtworks.gauge.datastore.DataStoreFactory;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Service
+public class LoadGeneration extends AbstractSpecImplementation {
+
+    @Autowired
+    private LoadGeneratorService loadGeneratorService;
+
+    @Step("Generate <tps> public transactions per second for <seconds> seconds from <source>")
+    public void generatePublicLoad(int tps, int seconds, QuorumNode source) {
+        generateLoad(LoadProfile.of(networkProperty.getNode(source.name()), tps, Duration.ofSeconds(seconds)));
+    }
+
+    @Step("Generate <tps> transactions per second for <seconds> seconds from <source>, <privatePercentage> percent of them private for <target>")
+    public void generateMixedLoad(int tps, int seconds, QuorumNode source, int privatePercentage, QuorumNode target) {
+        generateLoad(LoadProfile.of(networkProperty.getNode(source.name()), tps, Duration.ofSeconds(seconds))
+            .withPrivateFor(Arrays.asList(privacyService.id(target)), privatePercentage));
+    }
+
+    private void generateLoad(LoadProfile profile) {
+        LoadReport report = loadGeneratorService.run(profile);
+        Gauge.writeMessage("Load report: %s", report.toString());
+        DataStoreFactory.getScenarioDataStore().put("load_report", report);
+    }
+
+    @Step("All generated transactions are mined")
+    public void verifyAllMined() {
+        LoadReport report = mustHaveValue(DataStoreFactory.getScenarioDataStore(), "load_report", LoadReport.class);
+
+        assertThat(report.getFailed()).as("failed transactions").isZero();
+        assertThat(report.getMined()).as("mined transactions").isEqualTo(report.getSent());
+    }
+
+    @Step("<percentile> latency until transactions are <stage> is at most <millis> ms")
+    public void verifyLatency(String percentile, String stage, int millis) {
+        LoadReport report = mustHaveValue(DataStoreFactory.getScenarioDataStore(), "load_report", LoadReport.class);
+        Histogram histogram;
+        switch (stage) {
+            case "accepted":
+                histogram = report.getAcceptedLatency();
+                break;
+            case "mined":
+                histogram = report.getMinedLatency();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown stage " + stage + ", expected accepted or mined");
+        }
+        long actualMicros;
+        if ("max".equals(percentile)) {
+            actualMicros = histogram.getMaxValue();
+        } else if (percentile.startsWith("p")) {
+            actualMicros = histogram.getValueAtPercentile(Double.parseDouble(percentile.substring(1)));
+        } else {
+            throw new IllegalArgumentException("unknown percentile " + percentile + ", expected e.g. p50, p99 or max");
+        }
+
+        assertThat(actualMicros / 1000).as("%s latency until %s in ms", percentile, stage).isLessThanOrEqualTo(millis);
+    }
+}
@@ -101,6 +101,36 @@ public class NetworkMigration extends AbstractSpecImplementation {
         }
     }
 
+    /**
+     * Captured chain states outlive the scenario so that later scenarios can start from them
+     *
+     * @param name
+     */
+    @Step("Take a snapshot of the network, named it as <name>")
+    public void snapshotNetwork(String name) {
+        NetworkResources networkResources = mustHaveValue(DataStoreFactory.getScenarioDataStore(), "networkResources", NetworkResources.class);
+        infraService.snapshot(name, networkResources).doOnNext(ok -> {
+            assertThat(ok).as("Snapshot must be taken successfully").isTrue();
+        }).blockingSubscribe();
+        waitForResources(networkResources);
+    }
+
+    @Step("Restore the network from snapshot <name>")
+    public void restoreNetwork(String name) {
+        NetworkResources networkResources = mustHaveValue(DataStoreFactory.getScenarioDataStore(), "networkResources", NetworkResources.class);
+        infraService.restore(name, networkResources).doOnNext(ok -> {
+            assertThat(ok).as("Snapshot must be restored successfully").isTrue();
+        }).blockingSubscribe();
+        waitForResources(networkResources);
+    }
+
+    private void waitForResources(NetworkResources networkResources) {
+        Observable.fromIterable(networkResources.allResourceIds())
+            .flatMap(id -> infraService.wait(id).subscribeOn(Schedulers.io()))
+            .doOnNext(ok -> assertThat(ok).as("Containers must be up").isTrue())
+            .blockingSubscribe();
+    }
+
     @Step("Stop and start <component> in <node> using <versionKey>")
     public void stopAndStartNodes(String component, String node, String versionKey) {
         final BigInteger beforeRestartBlockHeight = getCurrentBlockNumberOrDefault(node);
@@ -150,6 +180,25 @@ public class NetworkMigration extends AbstractSpecImplementation {
         Observable.zip(parallelNodes, oks -> true).blockingSubscribe();
     }
 
+    /**
+     * Only the first scenario of a spec populates the network, the others restore the snapshot it has taken
+     *
+     * @param publicTxCount
+     * @param nodesStr
+     * @param name
+     */
+    @Step("Use SimpleStorage smart contract, populate network with <publicTxCount> public transactions randomly between <nodesStr> or restore it from snapshot <name>")
+    public void deploySimpleStoragePublicContractOrRestore(int publicTxCount, String nodesStr, String name) {
+        String key = "snapshot_" + name;
+        if (DataStoreFactory.getSpecDataStore().get(key) != null) {
+            restoreNetwork(name);
+            return;
+        }
+        deploySimpleStoragePublicContract(publicTxCount, nodesStr);
+        snapshotNetwork(name);
+        DataStoreFactory.getSpecDataStore().put(key, true);
+    }
+
     private Observable<? extends Contract> sendTxs(QuorumNode n, int txCountPerNode, int threadsPerNode) {
         return Observable.range(0, txCountPerNode).doOnNext(c -> logger.debug("Sending tx {} to {}", c, n)).flatMap(v -> Observable.just(v).flatMap(num -> contractService.createSimpleContract(40, n, null)).subscribeOn(Schedulers.io()), threadsPerNode);
     }
@@ -22,6 +22,7 @@ package com.quorum.gauge;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.quorum.gauge.common.ContextScheduler;
 import com.quorum.gauge.common.QuorumNode;
 import com.quorum.gauge.common.RawDeployedContractTarget;
 import com.quorum.gauge.common.RetryWithDelay;
@@ -44,7 +45,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
 import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.quorum.PrivacyFlag;
@@ -52,6 +52,7 @@ import org.web3j.tx.Contract;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -245,33 +246,16 @@ public class PrivateSmartContract extends AbstractSpecImplementation {
         if (targetContracts != null) {
             contracts.addAll(targetContracts);
         }
-        Scheduler scheduler = threadLocalDelegateScheduler(contracts.size());
-        List<Observable<EthGetTransactionReceipt>> allObservableReceipts = new ArrayList<>();
+        List<String> txHashes = new ArrayList<>();
         for (Contract c : contracts) {
-            String txHash = c.getTransactionReceipt().orElseThrow(() -> new RuntimeException("no receipt for contract")).getTransactionHash();
-            allObservableReceipts.add(transactionService.getTransactionReceipt(node, txHash)
-                .map(ethGetTransactionReceipt -> {
-                    if (ethGetTransactionReceipt.getTransactionReceipt().isPresent()) {
-                        return ethGetTransactionReceipt;
-                    } else {
-                        throw new RuntimeException("retry");
-                    }
-                })
-                .retryWhen(new RetryWithDelay(20, 3000))
-                .subscribeOn(scheduler));
+            txHashes.add(c.getTransactionReceipt().orElseThrow(() -> new RuntimeException("no receipt for contract")).getTransactionHash());
         }
-        Integer actualCount = Observable.zip(allObservableReceipts, args -> {
-            int count = 0;
-            for (Object o : args) {
-                EthGetTransactionReceipt r = (EthGetTransactionReceipt) o;
-                if (r.getTransactionReceipt().isPresent() && r.getTransactionReceipt().get().getBlockNumber().compareTo(BigInteger.valueOf(0)) != 0) {
-                    count++;
-                }
-            }
-            return count;
-        }).blockingFirst();
+        Map<String, TransactionReceipt> receipts = transactionService.pollTransactionReceipts(networkProperty.getNode(node.name()), txHashes, 20, Duration.ofSeconds(3));
+        long actualCount = receipts.values().stream()
+            .filter(r -> r.getBlockNumber().compareTo(BigInteger.valueOf(0)) != 0)
+            .count();
 
-        assertThat(actualCount).isEqualTo(expectedCount);
+        assertThat(actualCount).isEqualTo((long) expectedCount);
     }
 
     @Step("<contractName>'s payload is retrievable from <node>")
@@ -382,7 +366,7 @@ public class PrivateSmartContract extends AbstractSpecImplementation {
     @Step("Execute <contractName>'s `deposit()` function <count> times with arbitrary id and value from <source>. And it's private for <target>")
     public void executeDeposit(String contractName, int count, QuorumNode source, QuorumNode target) {
         Contract c = mustHaveValue(DataStoreFactory.getSpecDataStore(), contractName, Contract.class);
-        Scheduler scheduler = threadLocalDelegateScheduler(count);
+        Scheduler scheduler = ContextScheduler.shared();
         List<Observable<TransactionReceipt>> observables = new ArrayList<>();
         for (int i = 0; i < count; i++) {
             observables.add(contractService.updateClientReceiptPrivate(source, target, c.getContractAddress(), BigInteger.ZERO));
@@ -446,10 +430,9 @@ public class PrivateSmartContract extends AbstractSpecImplementation {
         }
 
         try {
-            List deployedContracts = Observable.zip(
-                rawContractService.createNRawSimplePrivateContract(count, wallet, source, targetNodes),
-                (a) -> a
-            ).collectInto(new ArrayList<>(), (objects, deployedContract) -> objects.addAll(Arrays.asList(deployedContract))).subscribeOn(Schedulers.io()).blockingGet();
+            List<RawDeployedContractTarget> deployedContracts = rawContractService.createNRawSimplePrivateContract(count, wallet, source, targetNodes)
+                .subscribeOn(Schedulers.io())
+                .blockingFirst();
             DataStoreFactory.getScenarioDataStore().put(store, deployedContracts);
         } catch (Exception e) {
             Assert.fail(e.getMessage());
@@ -460,9 +443,9 @@ public class PrivateSmartContract extends AbstractSpecImplementation {
     public void verifyStoredData(String store) {
         List<RawDeployedContractTarget> deployedContracts = (List<RawDeployedContractTarget>) mustHaveValue(DataStoreFactory.getScenarioDataStore(), store, List.class);
 
-        deployedContracts.forEach(o -> {
-            int value = contractService.readSimpleContractValue(o.target, o.receipt.getContractAddress());
-            assertThat(value).isEqualTo(o.value);
-        });
+        Map<String, QuorumNode> nodeByContractAddress = new LinkedHashMap<>();
+        deployedContracts.forEach(o -> nodeByContractAddress.put(o.receipt.getContractAddress(), o.target));
+        Map<String, Integer> values = contractService.readSimpleContractValues(nodeByContractAddress);
+        deployedContracts.forEach(o -> assertThat(values.get(o.receipt.getContractAddress())).as(o.receipt.getContractAddress()).isEqualTo(o.value));
     }
 }
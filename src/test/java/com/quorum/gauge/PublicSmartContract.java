@@ -19,6 +19,7 @@
 
 package com.quorum.gauge;
 
+import com.quorum.gauge.common.ContextScheduler;
 import com.quorum.gauge.common.QuorumNetworkProperty;
 import com.quorum.gauge.common.QuorumNode;
 import com.quorum.gauge.common.RetryWithDelay;
@@ -111,7 +112,7 @@ public class PublicSmartContract extends AbstractSpecImplementation {
     public void excuteDesposit(String contractName, int count, QuorumNetworkProperty.Node node) {
         Contract c = mustHaveValue(DataStoreFactory.getSpecDataStore(), contractName, Contract.class);
         List<Observable<TransactionReceipt>> observables = new ArrayList<>();
-        Scheduler scheduler = threadLocalDelegateScheduler(count);
+        Scheduler scheduler = ContextScheduler.shared();
         for (int i = 0; i < count; i++) {
             observables.add(contractService.updateClientReceipt(node, c.getContractAddress(), BigInteger.TEN).subscribeOn(scheduler));
         }
@@ -125,7 +126,7 @@ public class PublicSmartContract extends AbstractSpecImplementation {
         List<TransactionReceipt> originalReceipts = (List<TransactionReceipt>) DataStoreFactory.getScenarioDataStore().get("receipts");
 
         List<Observable<TransactionReceipt>> receiptsInNode = new ArrayList<>();
-        Scheduler scheduler = threadLocalDelegateScheduler(expectedTxCount);
+        Scheduler scheduler = ContextScheduler.shared();
         for (TransactionReceipt r : originalReceipts) {
             receiptsInNode.add(transactionService.getTransactionReceipt(node, r.getTransactionHash())
                 .map(tr -> {
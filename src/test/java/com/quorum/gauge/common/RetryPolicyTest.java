@@ -0,0 +1,105 @@
+package com.quorum.gauge.common;
+
+import io.reactivex.Observable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class RetryPolicyTest {
+    @Test
+    public void exponentialDelaysDoubleUpToMaxDelay() {
+        RetryPolicy policy = RetryPolicy.exponential(Duration.ofMillis(100), Duration.ofSeconds(1)).withJitter(0);
+
+        assertThat(policy.delayMillis(1)).isEqualTo(100);
+        assertThat(policy.delayMillis(2)).isEqualTo(200);
+        assertThat(policy.delayMillis(3)).isEqualTo(400);
+        assertThat(policy.delayMillis(4)).isEqualTo(800);
+        assertThat(policy.delayMillis(5)).isEqualTo(1000);
+        assertThat(policy.delayMillis(30)).isEqualTo(1000);
+    }
+
+    @Test
+    public void fixedDelaysDontChange() {
+        RetryPolicy policy = RetryPolicy.fixed(Duration.ofMillis(250));
+
+        for (int attempt = 1; attempt < 10; attempt++) {
+            assertThat(policy.delayMillis(attempt)).isEqualTo(250);
+        }
+    }
+
+    // jitter randomly shortens delays by up to the given fraction, never lengthens them
+    @Test
+    public void jitterShortensDelaysWithinFraction() {
+        RetryPolicy policy = RetryPolicy.exponential(Duration.ofMillis(1000), Duration.ofSeconds(10)).withJitter(0.2);
+
+        Set<Long> distinct = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.delayMillis(1);
+            assertThat(delay).isBetween(800L, 1000L);
+            distinct.add(delay);
+        }
+        assertThat(distinct.size()).isGreaterThan(1);
+    }
+
+    @Test
+    public void giveUpAfterMaxAttempts() {
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        Throwable error = catchThrowable(() -> failing(subscriptions)
+            .retryWhen(RetryPolicy.fixed(Duration.ofMillis(1)).withMaxAttempts(3))
+            .blockingFirst());
+
+        assertThat(subscriptions.get()).isEqualTo(3);
+        assertThat(error).hasMessageContaining("after 3 attempts").hasRootCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void giveUpOnceDeadlineHasPassed() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        long start = System.nanoTime();
+
+        Throwable error = catchThrowable(() -> failing(subscriptions)
+            .retryWhen(RetryPolicy.fixed(Duration.ofMillis(50)).withDeadline(Duration.ofMillis(300)))
+            .blockingFirst());
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat(error).hasMessageContaining("retry timed out");
+        assertThat(elapsedMillis).isBetween(250L, 2000L);
+        assertThat(subscriptions.get()).isBetween(4, 8);
+    }
+
+    @Test
+    public void nonRetryableErrorsAreNotRetried() {
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        Throwable error = catchThrowable(() -> failing(subscriptions)
+            .retryWhen(RetryPolicy.fixed(Duration.ofMillis(1)).retryIf(e -> false))
+            .blockingFirst());
+
+        assertThat(subscriptions.get()).isEqualTo(1);
+        assertThat(error).hasRootCauseInstanceOf(IOException.class);
+    }
+
+    // same total wait as the original linear backoff of RetryWithDelay
+    @Test
+    public void retryWithDelayKeepsLinearBackoffBudget() {
+        assertThat(RetryWithDelay.linearBackoffBudget(20)).isEqualTo(Duration.ofSeconds(190));
+        assertThat(RetryWithDelay.linearBackoffBudget(5)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(RetryWithDelay.linearBackoffBudget(1)).isEqualTo(Duration.ZERO);
+    }
+
+    private static Observable<Object> failing(AtomicInteger subscriptions) {
+        return Observable.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Observable.error(new IOException("boom"));
+        });
+    }
+}
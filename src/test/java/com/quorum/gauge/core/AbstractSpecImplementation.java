@@ -19,27 +19,20 @@
 
 package com.quorum.gauge.core;
 
-import com.quorum.gauge.common.Context;
 import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.quorum.gauge.common.QuorumNode;
 import com.quorum.gauge.services.*;
 import com.thoughtworks.gauge.datastore.DataStore;
 import com.thoughtworks.gauge.datastore.DataStoreFactory;
-import io.reactivex.Observable;
-import io.reactivex.Scheduler;
-import io.reactivex.schedulers.Schedulers;
 import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -92,6 +85,9 @@ public abstract class AbstractSpecImplementation {
     @Autowired
     protected UtilService utilService;
 
+    @Autowired
+    protected ChainHeadTracker chainHeadTracker;
+
     @Autowired
     protected QuorumNetworkProperty networkProperty;
 
@@ -170,43 +166,10 @@ public abstract class AbstractSpecImplementation {
     }
 
     protected void waitForBlockHeight(int currentBlockHeight, int untilBlockHeight) {
-        AtomicInteger lastBlockHeight = new AtomicInteger(currentBlockHeight);
-        utilService.getCurrentBlockNumber().flatMap(ethBlockNumber -> {
-            if (ethBlockNumber.getBlockNumber().intValue() < untilBlockHeight) {
-                logger.debug("Current block height is {}, wait until {}", ethBlockNumber.getBlockNumber(), untilBlockHeight);
-                lastBlockHeight.set(ethBlockNumber.getBlockNumber().intValue());
-                throw new RuntimeException("let's wait and retry");
-            }
-            return Observable.just(true);
-        }).retryWhen(
-                attempts -> attempts.zipWith(Observable.range(1, untilBlockHeight), (total, i) -> i)
-                        .flatMap(i -> Observable.timer(3, TimeUnit.SECONDS))
-                        .doOnComplete(() -> {
-                            throw new RuntimeException("Timed out! Can't wait until block height is " + untilBlockHeight + " higher. Last block height was " + lastBlockHeight.get());
-                        })
-        ).blockingFirst();
-    }
-
-    // created a fixed thread pool executor and inject ThreadLocal values into the scheduled thread
-    protected Scheduler threadLocalDelegateScheduler(int threadCount) {
-        QuorumNodeConnectionFactory connectionFactory = Context.getConnectionFactory();
-        String accessToken = Context.retrieveAccessToken();
-        Executor executor = Executors.newFixedThreadPool(Math.min(threadCount, 100), new ThreadFactory() {
-            private int count = 0;
-
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "RxJavaCustom-" + (count++)) {
-                    @Override
-                    public void run() {
-                        Context.setConnectionFactory(connectionFactory);
-                        Context.storeAccessToken(accessToken);
-                        super.run();
-                    }
-                };
-            }
-        });
-        return Schedulers.from(executor);
+        // same budget as polling every 3 seconds up to untilBlockHeight times
+        Duration deadline = Duration.ofSeconds(3L * untilBlockHeight);
+        logger.debug("Wait until block height is {}", untilBlockHeight);
+        chainHeadTracker.awaitHeight(BigInteger.valueOf(untilBlockHeight), deadline, networkProperty.getNode(QuorumNode.Node1.name()));
     }
 
     /**
@@ -21,9 +21,13 @@ package com.quorum.gauge.core;
 
 import com.google.common.collect.ImmutableMap;
 import com.quorum.gauge.common.QuorumNetworkProperty;
+import com.quorum.gauge.common.RetryPolicy;
 import com.quorum.gauge.ext.ObjectResponse;
+import com.quorum.gauge.services.ContainerLogCollector;
 import com.quorum.gauge.services.InfrastructureService;
 import com.quorum.gauge.services.InfrastructureService.NetworkResources;
+import com.quorum.gauge.services.NonceManager;
+import com.quorum.gauge.services.RpcMetricsService;
 import com.quorum.gauge.services.UtilService;
 import com.thoughtworks.gauge.*;
 import com.thoughtworks.gauge.datastore.DataStoreFactory;
@@ -53,10 +57,19 @@ public class ExecutionHooks {
     @Autowired
     UtilService utilService;
 
+    @Autowired
+    RpcMetricsService rpcMetricsService;
+
+    @Autowired
+    NonceManager nonceManager;
+
     @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
     @Autowired
     InfrastructureService infraService;
 
+    @Autowired(required = false)
+    ContainerLogCollector logCollector;
+
     private Map<String, AbstractConsumer> postConditionConsumers = ImmutableMap.of(
             "network-cleanup", new NetworkCleanupConsumer(99),
             "datadir-cleanup", new DatadirCleanupConsumer(1)
@@ -72,6 +85,11 @@ public class ExecutionHooks {
     @BeforeScenario
     public void beforeScenario(ExecutionContext context) {
         logger.debug("---> START OF BEFORE-SCENARIO");
+        markContainerLogs("SCENARIO STARTS: " + context.getCurrentSpecification().getName() + " / " + context.getCurrentScenario().getName());
+        rpcMetricsService.reset();
+        RetryPolicy.resetStatistics();
+        // previous scenarios may have reset the chain
+        nonceManager.invalidateAll();
         List<AbstractConsumer> consumers = context.getAllTags().stream()
                 .filter(tag -> tag.startsWith("pre-condition"))
                 .map(tag -> StringUtils.removeStart(tag, "pre-condition/"))
@@ -98,6 +116,9 @@ public class ExecutionHooks {
                 .sorted(Comparator.comparingInt(o -> o.index))
                 .collect(Collectors.toList())
                 .forEach(c -> c.accept(context));
+        rpcMetricsService.writeReport(context.getCurrentSpecification().getName(), context.getCurrentScenario().getName());
+        RetryPolicy.statistics().forEach((name, stats) -> logger.info("Retries [{}]: {}", name, stats));
+        markContainerLogs("SCENARIO ENDS: " + context.getCurrentScenario().getName() + (Boolean.TRUE.equals(context.getCurrentScenario().getIsFailing()) ? " (failed)" : ""));
         logger.debug("---> END OF AFTER-SCENARIO");
     }
 
@@ -111,6 +132,14 @@ public class ExecutionHooks {
     @BeforeStep
     public void beforeStepGlobal(ExecutionContext executionContext) {
         stepLogger.debug("--> STEP STARTS: {}", executionContext.getCurrentStep().getText());
+        rpcMetricsService.setCurrentStep(executionContext.getCurrentStep().getText());
+        markContainerLogs("STEP STARTS: " + executionContext.getCurrentStep().getText());
+    }
+
+    private void markContainerLogs(String text) {
+        if (logCollector != null) {
+            logCollector.mark(text);
+        }
     }
 
     @AfterStep
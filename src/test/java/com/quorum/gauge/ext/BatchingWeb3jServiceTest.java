@@ -0,0 +1,86 @@
+package com.quorum.gauge.ext;
+
+import io.reactivex.Flowable;
+import org.junit.Test;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchingWeb3jServiceTest {
+    // requests sent within the window go out as one batch and each caller gets its own response
+    @Test
+    public void coalesceRequestsWithinWindow() throws Exception {
+        RecordingService delegate = new RecordingService();
+        BatchingWeb3jService service = new BatchingWeb3jService(delegate, Duration.ofMillis(100), 10);
+
+        List<Request<?, EthBlockNumber>> requests = new ArrayList<>();
+        List<CompletableFuture<EthBlockNumber>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Request<?, EthBlockNumber> r = new Request<>("eth_blockNumber", Collections.emptyList(), service, EthBlockNumber.class);
+            requests.add(r);
+            futures.add(r.sendAsync());
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(futures.get(i).get().getBlockNumber()).isEqualTo(BigInteger.valueOf(requests.get(i).getId()));
+        }
+        assertThat(delegate.sent).hasSize(1);
+        assertThat(delegate.sent.get(0)).isInstanceOf(BatchRequest.class);
+        assertThat(service.getBatchSizes().getMaxValue()).isEqualTo(3);
+    }
+
+    // answers each request of a batch with its own id as the result
+    private static class RecordingService implements Web3jService {
+        final List<Request> sent = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public <T extends Response> T send(Request request, Class<T> responseType) {
+            sent.add(request);
+            BatchResponse batchResponse = new BatchResponse();
+            batchResponse.setResponses(((BatchRequest) request).getRequests().stream().map(r -> {
+                ObjectResponse response = new ObjectResponse();
+                response.setId(r.getId());
+                response.setJsonrpc("2.0");
+                response.setResult("0x" + Long.toHexString(r.getId()));
+                return response;
+            }).collect(Collectors.toList()));
+            return responseType.cast(batchResponse);
+        }
+
+        @Override
+        public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public org.web3j.protocol.core.BatchResponse sendBatch(org.web3j.protocol.core.BatchRequest batchRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<org.web3j.protocol.core.BatchResponse> sendBatchAsync(org.web3j.protocol.core.BatchRequest batchRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.quorum.gauge.ext;
+
+import com.quorum.gauge.common.QuorumNetworkProperty.ConcurrencyLimitProperty;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class NodeConcurrencyLimiterTest {
+    private static final String HOST = "node1";
+    private static final int PORT = 8545;
+
+    // the limit grows by 1/limit on every success, i.e. by one every limit requests
+    @Test
+    public void limitGrowsAdditivelyOnSuccess() throws Exception {
+        NodeConcurrencyLimiter limiter = new NodeConcurrencyLimiter(config(2, 0.5, 5, Duration.ofSeconds(5)));
+
+        limiter.intercept(new FakeChain(200));
+        assertThat(limiter.getLimit(HOST, PORT)).isCloseTo(2.5, within(1e-9));
+        limiter.intercept(new FakeChain(200));
+        assertThat(limiter.getLimit(HOST, PORT)).isCloseTo(2.9, within(1e-9));
+    }
+
+    // overloaded responses and I/O errors cut the limit by the backoff ratio, down to the min limit
+    @Test
+    public void limitDecreasesMultiplicativelyOnFailure() throws Exception {
+        NodeConcurrencyLimiter limiter = new NodeConcurrencyLimiter(config(8, 0.5, 10, Duration.ofSeconds(5)));
+
+        limiter.intercept(new FakeChain(503));
+        assertThat(limiter.getLimit(HOST, PORT)).isEqualTo(4);
+        assertThatThrownBy(() -> limiter.intercept(new FakeChain(new IOException("connection reset")))).hasMessage("connection reset");
+        assertThat(limiter.getLimit(HOST, PORT)).isEqualTo(2);
+        limiter.intercept(new FakeChain(429));
+        limiter.intercept(new FakeChain(502));
+        assertThat(limiter.getLimit(HOST, PORT)).isEqualTo(1);
+    }
+
+    // JSON RPC errors come back with 200 and don't count as failures
+    @Test
+    public void otherResponsesAreSuccessful() throws Exception {
+        NodeConcurrencyLimiter limiter = new NodeConcurrencyLimiter(config(4, 0.5, 1, Duration.ofSeconds(5)));
+
+        limiter.intercept(new FakeChain(500));
+        FakeChain chain = new FakeChain(200);
+        limiter.intercept(chain);
+        assertThat(chain.proceeded).isTrue();
+    }
+
+    // requests fail fast once the failure threshold is reached
+    @Test
+    public void circuitOpensAfterConsecutiveFailures() throws Exception {
+        NodeConcurrencyLimiter limiter = new NodeConcurrencyLimiter(config(4, 0.5, 2, Duration.ofSeconds(30)));
+
+        limiter.intercept(new FakeChain(503));
+        limiter.intercept(new FakeChain(200));
+        limiter.intercept(new FakeChain(503));
+        limiter.intercept(new FakeChain(503));
+
+        FakeChain chain = new FakeChain(200);
+        assertThatThrownBy(() -> limiter.intercept(chain)).isInstanceOf(NodeConcurrencyLimiter.CircuitOpenException.class);
+        assertThat(chain.proceeded).isFalse();
+    }
+
+    // a successful probe closes the circuit and starts again from the initial limit
+    @Test
+    public void successfulProbeClosesCircuit() throws Exception {
+        NodeConcurrencyLimiter limiter = new NodeConcurrencyLimiter(config(4, 0.5, 1, Duration.ofMillis(50)));
+
+        limiter.intercept(new FakeChain(503));
+        Thread.sleep(100);
+        FakeChain probe = new FakeChain(200);
+        limiter.intercept(probe);
+
+        assertThat(probe.proceeded).isTrue();
+        assertThat(limiter.getLimit(HOST, PORT)).isCloseTo(4.25, within(1e-9));
+        limiter.intercept(new FakeChain(200));
+    }
+
+    // a failed probe opens the circuit again straight away
+    @Test
+    public void failedProbeReopensCircuit() throws Exception {
+        NodeConcurrencyLimiter limiter = new NodeConcurrencyLimiter(config(4, 0.5, 3, Duration.ofMillis(500)));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.intercept(new FakeChain(503));
+        }
+        Thread.sleep(600);
+        limiter.intercept(new FakeChain(504));
+
+        assertThatThrownBy(() -> limiter.intercept(new FakeChain(200))).isInstanceOf(NodeConcurrencyLimiter.CircuitOpenException.class);
+    }
+
+    private static ConcurrencyLimitProperty config(int initialLimit, double backoffRatio, int failureThreshold, Duration openDuration) {
+        ConcurrencyLimitProperty config = new ConcurrencyLimitProperty();
+        config.setEnabled(true);
+        config.setInitialLimit(initialLimit);
+        config.setMinLimit(1);
+        config.setMaxLimit(100);
+        config.setBackoffRatio(backoffRatio);
+        config.setAcquireTimeout(Duration.ofMillis(100));
+        config.setFailureThreshold(failureThreshold);
+        config.setOpenDuration(openDuration);
+        return config;
+    }
+
+    // answers with the given status code or fails with the given error
+    private static class FakeChain implements Interceptor.Chain {
+        private final Request request = new Request.Builder().url("http://" + HOST + ":" + PORT).build();
+        private final int code;
+        private final IOException error;
+        boolean proceeded;
+
+        FakeChain(int code) {
+            this.code = code;
+            this.error = null;
+        }
+
+        FakeChain(IOException error) {
+            this.code = 0;
+            this.error = error;
+        }
+
+        @NotNull
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @NotNull
+        @Override
+        public Response proceed(@NotNull Request request) throws IOException {
+            proceeded = true;
+            if (error != null) {
+                throw error;
+            }
+            return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(code).message("").build();
+        }
+
+        @Override
+        public Connection connection() {
+            return null;
+        }
+
+        @NotNull
+        @Override
+        public Call call() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int connectTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withConnectTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int readTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withReadTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int writeTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withWriteTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+    }
+}
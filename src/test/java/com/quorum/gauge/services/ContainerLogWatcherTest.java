@@ -0,0 +1,94 @@
+package com.quorum.gauge.services;
+
+import com.github.dockerjava.api.model.StreamType;
+import io.reactivex.Observable;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerLogWatcherTest {
+    // a line matching any of the patterns matches the combined one
+    @Test
+    public void anyOfMatchesEachPattern() {
+        Pattern any = ContainerLogWatcher.anyOf(Arrays.asList("Commit new mining work", "mined block number=\\d+", "^ready$|^done$"));
+
+        assertThat(any.matcher("INFO Commit new mining work number=3").find()).isTrue();
+        assertThat(any.matcher("INFO mined block number=12").find()).isTrue();
+        assertThat(any.matcher("done").find()).isTrue();
+        assertThat(any.matcher("not done yet").find()).isFalse();
+        assertThat(any.matcher("INFO mined block number=").find()).isFalse();
+        assertThat(any.matcher("INFO Imported new chain segment").find()).isFalse();
+    }
+
+    // a single pattern is used as is
+    @Test
+    public void anyOfSinglePattern() {
+        assertThat(ContainerLogWatcher.anyOf(Arrays.asList("(\\w)\\1")).pattern()).isEqualTo("(\\w)\\1");
+    }
+
+    // group numbers change once combined, so patterns with back references make every line a candidate
+    @Test
+    public void anyOfFallsBackWithBackReferences() {
+        Pattern any = ContainerLogWatcher.anyOf(Arrays.asList("peer (\\w+) dropped \\1", "(?<id>\\d+) then \\k<id>"));
+
+        assertThat(any.pattern()).isEmpty();
+        assertThat(any.matcher("INFO Imported new chain segment").find()).isTrue();
+    }
+
+    // lines are matched by each pattern on its own after the fallback
+    @Test
+    public void watchFindsPatternsWithBackReferences() {
+        ContainerLogWatcher watcher = new FakeLogWatcher(
+            "peer abc dropped xyz",
+            "peer abc dropped abc",
+            "block 7 then 8",
+            "block 7 then 7",
+            "never read");
+
+        List<String> found = watcher.watch("c1", Arrays.asList("peer (\\w+) dropped \\1", "(?<id>\\d+) then \\k<id>"), Instant.EPOCH, Duration.ofSeconds(5))
+            .toList()
+            .blockingGet();
+
+        assertThat(found).containsExactly("peer (\\w+) dropped \\1", "(?<id>\\d+) then \\k<id>");
+    }
+
+    // each pattern is emitted once even if found again, and several can be found in the same line
+    @Test
+    public void watchEmitsEachPatternOnce() {
+        ContainerLogWatcher watcher = new FakeLogWatcher(
+            "Commit new mining work",
+            "Commit new mining work",
+            "Successfully sealed new block, Commit new mining work");
+
+        List<String> found = watcher.watch("c1", Arrays.asList("Commit new mining work", "sealed new block"), Instant.EPOCH, Duration.ofSeconds(5))
+            .toList()
+            .blockingGet();
+
+        assertThat(found).containsExactly("Commit new mining work", "sealed new block");
+    }
+
+    // serves the given lines instead of following a container
+    private static class FakeLogWatcher extends ContainerLogWatcher {
+        private final List<String> texts;
+
+        FakeLogWatcher(String... texts) {
+            super(null);
+            this.texts = Arrays.asList(texts);
+        }
+
+        @Override
+        public Observable<LogLine> lines(String containerId, Instant since) {
+            Instant now = Instant.now();
+            return Observable.fromIterable(texts.stream()
+                .map(text -> new LogLine(now, StreamType.STDOUT, text))
+                .collect(Collectors.toList()));
+        }
+    }
+}
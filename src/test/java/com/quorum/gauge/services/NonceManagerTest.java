@@ -0,0 +1,143 @@
+package com.quorum.gauge.services;
+
+import com.quorum.gauge.common.QuorumNetworkProperty.Node;
+import io.reactivex.Observable;
+import org.junit.Test;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NonceManagerTest {
+    private static final String ALICE = "0xAbc";
+    private static final String BOB = "0xdef";
+
+    // nonces are seeded once from the node then handed out locally
+    @Test
+    public void nextHandsOutConsecutiveNonces() {
+        FakeNonceManager manager = new FakeNonceManager();
+        manager.pending.put(ALICE.toLowerCase(), 5L);
+        Node node = node("Node1");
+
+        assertThat(manager.next(node, ALICE)).isEqualTo(5);
+        assertThat(manager.next(node, ALICE)).isEqualTo(6);
+        assertThat(manager.next(node, ALICE.toLowerCase())).isEqualTo(7);
+        assertThat(manager.seeds).isEqualTo(1);
+    }
+
+    // a reserved range is skipped by the following nonces
+    @Test
+    public void reserveSkipsWholeRange() {
+        FakeNonceManager manager = new FakeNonceManager();
+        manager.pending.put(ALICE.toLowerCase(), 2L);
+        Node node = node("Node1");
+
+        assertThat(manager.reserve(node, ALICE, 3)).isEqualTo(2);
+        assertThat(manager.next(node, ALICE)).isEqualTo(5);
+    }
+
+    // after a resync the nonce is read again from the node
+    @Test
+    public void resyncSeedsAgain() {
+        FakeNonceManager manager = new FakeNonceManager();
+        manager.pending.put(ALICE.toLowerCase(), 0L);
+        Node node = node("Node1");
+
+        BigInteger first = manager.reserve(node, ALICE, 4);
+        // only the first two nonces of the range made it to the node
+        manager.pending.put(ALICE.toLowerCase(), 2L);
+        manager.resync(node, ALICE, first, 4);
+
+        assertThat(manager.next(node, ALICE)).isEqualTo(2);
+        assertThat(manager.seeds).isEqualTo(2);
+    }
+
+    // nonces handed out after a range may still be in flight so they are not handed out again
+    @Test
+    public void resyncKeepsLaterNonces() {
+        FakeNonceManager manager = new FakeNonceManager();
+        manager.pending.put(ALICE.toLowerCase(), 0L);
+        Node node = node("Node1");
+
+        BigInteger first = manager.reserve(node, ALICE, 2);
+        manager.next(node, ALICE);
+        manager.pending.put(ALICE.toLowerCase(), 1L);
+
+        assertThat(manager.resync(node, ALICE, first, 2)).isFalse();
+        assertThat(manager.next(node, ALICE)).isEqualTo(3);
+        assertThat(manager.seeds).isEqualTo(1);
+    }
+
+    // a rejected nonce isn't reused while a later one is in flight, the transaction is sent again with the next nonce
+    @Test
+    public void sendWithNonceRetriesWithoutReusingInFlightNonces() {
+        FakeNonceManager manager = new FakeNonceManager();
+        manager.pending.put(ALICE.toLowerCase(), 0L);
+        Node node = node("Node1");
+        List<BigInteger> sent = new ArrayList<>();
+
+        EthSendTransaction response = manager.sendWithNonce(node, ALICE, nonce -> {
+            sent.add(nonce);
+            EthSendTransaction r = new EthSendTransaction();
+            if (sent.size() == 1) {
+                // another transaction of the account is being sent meanwhile
+                manager.next(node, ALICE);
+                r.setError(new Response.Error(-32000, "replacement transaction underpriced"));
+            } else {
+                r.setResult("0x1");
+            }
+            return Observable.just(r);
+        }).blockingFirst();
+
+        assertThat(response.hasError()).isFalse();
+        assertThat(sent).containsExactly(BigInteger.ZERO, BigInteger.valueOf(2));
+        assertThat(manager.seeds).isEqualTo(1);
+    }
+
+    // nonces are tracked per node and account, invalidation only drops those of the given node
+    @Test
+    public void invalidateOnlyForgetsTheNode() {
+        FakeNonceManager manager = new FakeNonceManager();
+        manager.pending.put(ALICE.toLowerCase(), 10L);
+        manager.pending.put(BOB.toLowerCase(), 20L);
+        Node node1 = node("Node1");
+        Node node2 = node("Node2");
+
+        manager.next(node1, ALICE);
+        manager.next(node1, BOB);
+        manager.next(node2, ALICE);
+        manager.invalidate(node1);
+
+        assertThat(manager.next(node1, ALICE)).isEqualTo(10);
+        assertThat(manager.next(node1, BOB)).isEqualTo(20);
+        assertThat(manager.next(node2, ALICE)).isEqualTo(11);
+
+        manager.invalidateAll();
+        assertThat(manager.next(node2, ALICE)).isEqualTo(10);
+    }
+
+    private static Node node(String name) {
+        Node node = new Node();
+        node.setName(name);
+        node.setUrl("http://" + name.toLowerCase() + ":8545");
+        return node;
+    }
+
+    // pending transaction counts by account, the same on every node
+    private static class FakeNonceManager extends NonceManager {
+        final Map<String, Long> pending = new HashMap<>();
+        int seeds;
+
+        @Override
+        BigInteger pendingTransactionCount(Node node, String address) {
+            seeds++;
+            return BigInteger.valueOf(pending.get(address.toLowerCase()));
+        }
+    }
+}